@@ -0,0 +1,223 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nl.qiy.oic.op.api.param.Prompt;
+
+/**
+ * Measures parsing an incoming authorization request and the round trip through {@link AuthenticationRequest#toBytes()}
+ * and {@link AuthenticationRequest#fromBytes(byte[])} that the authorization flows use to park a request. The legacy
+ * variants show what that cost with Java serialization. The parse benchmarks compare splitting the space delimited
+ * parameters with {@link SpaceDelimited} against the split, stream and regex approach that was used before.
+ * constructFromTemplate shows a replayed request that takes its client, redirect uri, scope and response type from
+ * {@link RequestTemplates}.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthenticationRequestBenchmark {
+    private static final Pattern SCOPE_PATTERN = Pattern.compile("[\\x21-\\x7e&&[^\\x22\\x5c]]+");
+    private static final String SCOPE = "openid profile email address phone";
+    private static final String PROMPT = "login consent";
+
+    private Validator validator;
+    private CompiledValidation compiled;
+    private RequestTemplates templates;
+    private MultivaluedMap<String, String> params;
+    private AuthenticationRequest request;
+    private byte[] bytes;
+    private byte[] legacyBytes;
+
+    @Setup
+    public void setup() {
+        ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
+        validator = factory.getValidator();
+        compiled = CompiledValidation.of(factory);
+        templates = new RequestTemplates(100);
+        params = params("openid profile email address phone", "id_token token");
+        request = new AuthenticationRequest(params, validator);
+        bytes = request.toBytes();
+        legacyBytes = toBytesLegacy();
+    }
+
+    /**
+     * Creates the parameters of a typical authorization request
+     * 
+     * @param scope
+     *            value for the scope parameter
+     * @param responseType
+     *            value for the response_type parameter
+     * @return see description
+     */
+    static MultivaluedMap<String, String> params(String scope, String responseType) {
+        MultivaluedMap<String, String> result = new MultivaluedHashMap<>();
+        result.putSingle("scope", scope);
+        result.putSingle("response_type", responseType);
+        result.putSingle("client_id", "benchmark-client");
+        result.putSingle("redirect_uri", "https://rp.example.com/callback");
+        result.putSingle("state", "af0ifjsldkj");
+        result.putSingle("nonce", "n-0S6_WzA2Mj");
+        result.putSingle("prompt", "login consent");
+        result.putSingle("max_age", "3600");
+        result.putSingle("ui_locales", "nl-NL nl en");
+        return result;
+    }
+
+    @Benchmark
+    public AuthenticationRequest construct() {
+        return new AuthenticationRequest(params, validator);
+    }
+
+    @Benchmark
+    public AuthenticationRequest constructCompiled() {
+        return new AuthenticationRequest(params, compiled);
+    }
+
+    @Benchmark
+    public AuthenticationRequest constructFromTemplate() {
+        return new AuthenticationRequest(params, compiled, templates);
+    }
+
+    @Benchmark
+    public byte[] toBytes() {
+        return request.toBytes();
+    }
+
+    @Benchmark
+    public AuthenticationRequest fromBytes() {
+        return AuthenticationRequest.fromBytes(bytes);
+    }
+
+    @Benchmark
+    public String seal() {
+        return request.seal(Duration.ofMinutes(10));
+    }
+
+    /**
+     * How toBytes worked before the AuthenticationRequestCodec
+     * 
+     * @return see description
+     */
+    @Benchmark
+    public byte[] toBytesLegacy() {
+        try (ByteArrayOutputStream bos = new ByteArrayOutputStream(); ObjectOutput out = new ObjectOutputStream(bos)) {
+            out.writeObject(request);
+            return bos.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reading what was written by Java serialization, through the compatibility reader
+     * 
+     * @return see description
+     */
+    @Benchmark
+    public AuthenticationRequest fromBytesLegacy() {
+        return AuthenticationRequest.fromBytes(legacyBytes);
+    }
+
+    @Benchmark
+    public Object parse() {
+        Set<String> scopes = new HashSet<>();
+        for (SpaceDelimited parts = new SpaceDelimited(SCOPE); parts.hasNext();) {
+            String scope = parts.next();
+            if (!SpaceDelimited.isScopeToken(scope)) {
+                throw new IllegalStateException(scope);
+            }
+            scopes.add(scope);
+        }
+        Set<Prompt> prompts = EnumSet.noneOf(Prompt.class);
+        for (SpaceDelimited parts = new SpaceDelimited(PROMPT); parts.hasNext();) {
+            prompts.add(Prompt.get(parts.next()));
+        }
+        return prompts.size() + scopes.size();
+    }
+
+    /**
+     * How the scope and prompt were parsed before SpaceDelimited
+     * 
+     * @return see description
+     */
+    @Benchmark
+    public Object parseLegacy() {
+        Set<String> scopes;
+        try (Stream<String> stream = Arrays.stream(SCOPE.split(" "))) {
+            scopes = stream.collect(Collectors.toCollection(HashSet::new));
+        }
+        if (!scopes.stream().allMatch(s -> SCOPE_PATTERN.matcher(s).matches())) {
+            throw new IllegalStateException(scopes.toString());
+        }
+        Set<Prompt> prompts;
+        try (Stream<String> stream = Arrays.stream(PROMPT.split(" "))) {
+            prompts = stream.map(AuthenticationRequestBenchmark::promptLegacy)
+                    .collect(Collectors.toCollection(() -> EnumSet.noneOf(Prompt.class)));
+        }
+        return prompts.size() + scopes.size();
+    }
+
+    private static Prompt promptLegacy(String input) {
+        for (Prompt value : Prompt.values()) {
+            if (value.toString().equals(input)) {
+                return value;
+            }
+        }
+        throw new IllegalStateException(input);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.api;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.validation.Validation;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nl.qiy.oic.op.domain.OAuthUser;
+import nl.qiy.oic.op.service.testimpl.DummyUser;
+
+/**
+ * Measures building the response for a logged in user, for each of the response modes. This includes building and
+ * signing the ID token and, for 'id_token token', storing the bearer.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthenticationResponseBenchmark {
+    @Param({ "query", "fragment", "form_post" })
+    public String responseMode;
+
+    @Param({ "id_token", "id_token token" })
+    public String responseType;
+
+    private AuthenticationRequest request;
+    private OAuthUser user;
+
+    @Setup
+    public void setup() {
+        MultivaluedMap<String, String> params = AuthenticationRequestBenchmark.params("openid profile email",
+                responseType);
+        params.putSingle("response_mode", responseMode);
+        request = new AuthenticationRequest(params, Validation.buildDefaultValidatorFactory().getValidator());
+        user = new DummyUser("benchmark-user");
+    }
+
+    @Benchmark
+    public Response getResponse() {
+        return AuthenticationResponse.getResponse(request, user);
+    }
+}
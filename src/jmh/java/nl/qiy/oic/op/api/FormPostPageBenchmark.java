@@ -0,0 +1,114 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.api;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures writing the form_post page with {@link FormPostPage} against building it with String.format as
+ * AuthenticationResponse did before. Both write the page as UTF-8 to an output stream that only counts.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormPostPageBenchmark {
+    private URI action;
+    private Map<String, String> params;
+    private long written;
+    private OutputStream output;
+
+    @Setup
+    public void setup() {
+        action = URI.create("https://rp.example.com/callback");
+        params = new HashMap<>();
+        params.put("state", "af0ifjsldkj");
+        params.put("token_type", "bearer");
+        params.put("expires_in", "3600");
+        params.put("access_token",
+                "SlAV32hkKG-2Jv4bJc4mW4ZxPi8aQw5ThjT9zMa3tQb4rWp5Lx3hQ0fK8nV1kY6cE2uS7oG9dB3iM1pR4");
+        params.put("id_token", "eyJhbGciOiJSUzI1NiJ9.eyJpc3MiOiJodHRwczovL29wLmV4YW1wbGUuY29tIiwic3ViIjoiYmVuY2htYXJrIn0"
+                + ".c2lnbmF0dXJlc2lnbmF0dXJlc2lnbmF0dXJlc2lnbmF0dXJl");
+        output = new OutputStream() {
+            @Override
+            public void write(int b) {
+                written++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                written += len;
+            }
+        };
+    }
+
+    /**
+     * @return the number of bytes written so far
+     * @throws IOException
+     *             never
+     */
+    @Benchmark
+    public long render() throws IOException {
+        new FormPostPage(action, params).write(output);
+        return written;
+    }
+
+    /**
+     * How the page was made before FormPostPage
+     * 
+     * @return the number of bytes written so far
+     * @throws IOException
+     *             never
+     */
+    @Benchmark
+    public long renderLegacy() throws IOException {
+        StringBuilder form = new StringBuilder();
+        params.forEach((key, value) -> form
+                .append(String.format("<input type=\"hidden\" name=\"%s\" value=\"%s\"/>", key, value)));
+
+        String page = String.format("<html><head><title>Submit This Form</title></head>"
+                + "<body onload=\"javascript:document.forms[0].submit()\">"
+                + "<form method=\"post\" action=\"%s\">%s</form></body></html>", action, form);
+        output.write(page.getBytes(StandardCharsets.UTF_8));
+        return written;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.domain;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nl.qiy.oic.op.service.testimpl.DummyUser;
+
+/**
+ * Measures building and signing an ID token for a user with a complete set of claims, both single threaded and with
+ * as many threads as there are cores.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IDTokenBenchmark {
+    private static final List<String> EMAIL_SCOPE = Arrays.asList("openid", "email");
+    private OAuthUser user;
+
+    @Setup
+    public void setup() {
+        user = new DummyUser("benchmark-user");
+    }
+
+    @Benchmark
+    public String buildStringRepresentation() {
+        return new IDToken(user).buildStringRepresentation("benchmark-client", "n-0S6_WzA2Mj");
+    }
+
+    @Benchmark
+    public String buildStringRepresentationEmailScope() {
+        return new IDToken(user, EMAIL_SCOPE).buildStringRepresentation("benchmark-client", "n-0S6_WzA2Mj");
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String buildStringRepresentationConcurrent() {
+        return new IDToken(user).buildStringRepresentation("benchmark-client", "n-0S6_WzA2Mj");
+    }
+
+    @Benchmark
+    public Object getStandardClaims() {
+        return new IDToken(user).getStandardClaims();
+    }
+
+    @Benchmark
+    public byte[] getUserInfo() {
+        return new IDToken(user).getUserInfo();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.service;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nl.qiy.oic.op.domain.IDToken;
+import nl.qiy.oic.op.service.testimpl.DummyUser;
+
+/**
+ * Measures the off-heap bearer store holding a million live tokens in direct memory, the same operations as
+ * {@link BearerStoreBenchmark}. With the gc profiler this shows what is left on the heap per call: the digest and the
+ * copied user info.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:MaxDirectMemorySize=3g")
+public class OffHeapBearerStoreBenchmark {
+    private static final int LIVE = 1_000_000;
+    private final AtomicLong next = new AtomicLong(LIVE);
+    private OffHeapBearerStore store;
+    private String[] tokens;
+    private IDToken idToken;
+
+    @Setup
+    public void setup() {
+        store = new OffHeapBearerStore(Duration.ofMinutes(10), LIVE, 1024);
+        idToken = new IDToken(new DummyUser("benchmark-user"));
+        tokens = new String[LIVE];
+        for (int i = 0; i < LIVE; i++) {
+            tokens[i] = token(i);
+            store.put(tokens[i], idToken);
+        }
+    }
+
+    private static String token(long i) {
+        return "at-" + Long.toHexString(i * 0x9E3779B97F4A7C15L);
+    }
+
+    @Benchmark
+    public byte[] getUserInfo() {
+        return store.getUserInfo(tokens[ThreadLocalRandom.current().nextInt(LIVE)]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public byte[] getUserInfoConcurrent() {
+        return store.getUserInfo(tokens[ThreadLocalRandom.current().nextInt(LIVE)]);
+    }
+
+    @Benchmark
+    public byte[] getUserInfoUnknown() {
+        return store.getUserInfo("unknown-" + ThreadLocalRandom.current().nextInt(LIVE));
+    }
+
+    @Benchmark
+    public Long put() {
+        return store.put(token(next.getAndIncrement()), idToken);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Long putConcurrent() {
+        return store.put(token(next.getAndIncrement()), idToken);
+    }
+}
@@ -19,20 +19,15 @@
 
 package nl.qiy.oic.op.api;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInput;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutput;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.io.UncheckedIOException;
 import java.math.BigInteger;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashSet;
@@ -41,8 +36,6 @@ import java.util.Locale;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
@@ -50,11 +43,12 @@ import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
 import javax.ws.rs.core.MultivaluedMap;
-import javax.ws.rs.core.UriBuilder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import nl.qiy.oic.op.api.InternedValues.ResponseTypes;
+import nl.qiy.oic.op.api.RequestTemplates.RequestTemplate;
 import nl.qiy.oic.op.api.param.Display;
 import nl.qiy.oic.op.api.param.Flow;
 import nl.qiy.oic.op.api.param.Prompt;
@@ -78,8 +72,6 @@ public class AuthenticationRequest implements Serializable {
      * Standard SLF4J Logger
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(AuthenticationRequest.class);
-    private static final java.util.regex.Pattern SCOPE_PATTERN = java.util.regex.Pattern
-            .compile("[\\x21-\\x7e&&[^\\x22\\x5c]]+");
 
     private static ThreadLocal<AuthenticationRequest> storage = new ThreadLocal<>();
 
@@ -304,6 +296,11 @@ public class AuthenticationRequest implements Serializable {
     final transient Flow flow;
 
     private OAuthClient client;
+    /**
+     * Whether {@link #client} was checked to own {@link #redirectUri} when this request was made, so
+     * {@link #getErrorUri(InputException)} needn't check again. Not set for requests from the legacy format.
+     */
+    private final transient boolean redirectUriChecked;
 
     /**
      * Constructor for AuthenticationRequest, that will copy all the relevant values and validate it afterwards.
@@ -313,35 +310,81 @@ public class AuthenticationRequest implements Serializable {
      * @param parameters
      *            the user's input as given by either the GET or POST request
      */
-    public AuthenticationRequest(MultivaluedMap<String, String> parameters, Validator validator) { // NOSONAR
+    public AuthenticationRequest(MultivaluedMap<String, String> parameters, Validator validator) {
+        this(parameters, validator, null, null);
+    }
+
+    /**
+     * Constructor for AuthenticationRequest, that will copy all the relevant values and validate it afterwards without
+     * going through Bean Validation
+     * 
+     * @param compiled
+     *            the checks for the constraints, see {@link CompiledValidation#of(javax.validation.ValidatorFactory)}
+     * @param parameters
+     *            the user's input as given by either the GET or POST request
+     */
+    AuthenticationRequest(MultivaluedMap<String, String> parameters, CompiledValidation compiled) {
+        this(parameters, null, compiled, null);
+    }
+
+    /**
+     * Constructor for AuthenticationRequest, like {@link #AuthenticationRequest(MultivaluedMap, CompiledValidation)},
+     * that takes the client, redirect uri, scope and response type from a template if the same values were seen before
+     * 
+     * @param compiled
+     *            the checks for the constraints, see {@link CompiledValidation#of(javax.validation.ValidatorFactory)}
+     * @param templates
+     *            where the templates are kept, see {@link RequestTemplates#current()}
+     * @param parameters
+     *            the user's input as given by either the GET or POST request
+     */
+    AuthenticationRequest(MultivaluedMap<String, String> parameters, CompiledValidation compiled,
+            RequestTemplates templates) {
+        this(parameters, null, compiled, templates);
+    }
+
+    private AuthenticationRequest(MultivaluedMap<String, String> parameters, Validator validator, // NOSONAR
+            CompiledValidation compiled, RequestTemplates templates) {
         super();
         storage.set(this);
         // paramters must be set first as all the helper functions depend on it
         this.parameters = parameters;
 
-        // errors need to be reported to the redirect uri, so better parse that first
-        this.redirectUri = parseRedirectUri();
-
-        // the redirect URI needs to belong to a client, so that's the second field we want to know
-        this.clientId = paramValue("client_id");
-        this.client = OAuthClientService.getById(clientId)
-                .orElseThrow(() -> new InputException(ErrorCode.INVALID_REQUEST,
-                        "No client was found for clientId " + this.clientId));
-        if (!this.client.ownsURI(this.redirectUri)) {
-            throw new InputException(ErrorCode.INVALID_REQUEST,
-                    "The client " + this.clientId + " does not contol redirect uri " + this.redirectUri);
+        // the values that a client sends the same every time
+        RequestTemplate template = templates == null ? null
+                : templates.find(paramValue("client_id"), paramValue("redirect_uri"), paramValue("scope"),
+                        paramValue("response_type"));
+        ResponseTypes responseTypes;
+        if (template == null) {
+            // errors need to be reported to the redirect uri, so better parse that first
+            this.redirectUri = parseRedirectUri();
+
+            // the redirect URI needs to belong to a client, so that's the second field we want to know
+            this.clientId = paramValue("client_id");
+            this.client = resolveClient(clientId, redirectUri);
+            this.redirectUriChecked = true;
+
+            // than other required fields
+            this.scope = parseScope();
+            responseTypes = parseResponseType();
+            if (templates != null) {
+                templates.put(clientId, paramValue("redirect_uri"), paramValue("scope"), paramValue("response_type"),
+                        new RequestTemplate(clientId, redirectUri, client, scope, responseTypes));
+            }
+        } else {
+            this.redirectUri = template.redirectUri;
+            this.clientId = template.clientId;
+            this.client = template.client;
+            this.redirectUriChecked = true;
+            this.scope = template.scope;
+            responseTypes = template.responseTypes;
         }
-
-        // than other required fields
-        this.scope = parseScope();
-        this.responseType = parseResponseType();
+        this.responseType = responseTypes.values;
 
         // derive flow from responseType
-        // NB: the order here matters! this depends on responseType being set and parseResponseMode depends on this
-        // being set!
-        this.flow = deriveFlow();
+        this.flow = responseTypes.flow;
 
-        this.responseMode = parseResponseMode();
+        this.responseMode = parseResponseMode(responseTypes.defaultMode);
 
         // and the optionals
         this.state = paramValue("state");
@@ -355,24 +398,59 @@ public class AuthenticationRequest implements Serializable {
         this.acrValues = paramValueAsList("acr_values", Function.identity());
 
         // this must be the last call as it needs all the values to be set
-        validateCompleteObject(validator);
+        if (compiled == null) {
+            validateCompleteObject(validator);
+        } else {
+            compiled.validate(this);
+        }
+    }
+
+    /**
+     * Constructor for AuthenticationRequest that is used by {@link AuthenticationRequestCodec}, with values that have
+     * been validated before. The client is looked up again by its id and must still own the redirect uri.
+     */
+    AuthenticationRequest(Set<String> scope, Set<ResponseType> responseType, String clientId, URI redirectUri, // NOSONAR
+            String state, ResponseMode responseMode, String nonce, Display display, Set<Prompt> prompt,
+            Integer maxAge, List<Locale> uiLocales, String idTokenHint, String loginHint, List<String> acrValues) {
+        super();
+        this.parameters = null;
+        this.scope = scope;
+        this.responseType = responseType;
+        this.clientId = clientId;
+        this.redirectUri = redirectUri;
+        this.state = state;
+        this.responseMode = responseMode;
+        this.nonce = nonce;
+        this.display = display;
+        this.prompt = prompt;
+        this.maxAge = maxAge;
+        this.uiLocales = uiLocales;
+        this.idTokenHint = idTokenHint;
+        this.loginHint = loginHint;
+        this.acrValues = acrValues;
+        this.flow = ResponseTypes.flow(responseType);
+        this.client = resolveClient(clientId, redirectUri);
+        this.redirectUriChecked = true;
     }
 
     /**
-     * derive the flow from the response_type that must have been set by now
+     * Looks up the client and checks that it owns the redirect uri
      * 
+     * @param clientId
+     *            the client's id
+     * @param redirectUri
+     *            the redirect uri of the request
      * @return see description
+     * @throws InputException
+     *             if the client does not exist or does not own the uri
      */
-    private Flow deriveFlow() {
-        Flow result;
-        if (responseType.contains(ResponseType.CODE)) {
-            if (responseType.size() == 1) {
-                result = Flow.AUTHORIZATION_CODE;
-            } else {
-                result = Flow.HYBRID;
-            }
-        } else {
-            result = Flow.IMPLICIT;
+    private static OAuthClient resolveClient(String clientId, URI redirectUri) {
+        OAuthClient result = OAuthClientService.getById(clientId)
+                .orElseThrow(() -> new InputException(ErrorCode.INVALID_REQUEST,
+                        "No client was found for clientId " + clientId));
+        if (!result.ownsURI(redirectUri)) {
+            throw new InputException(ErrorCode.INVALID_REQUEST,
+                    "The client " + clientId + " does not contol redirect uri " + redirectUri);
         }
         return result;
     }
@@ -398,39 +476,46 @@ public class AuthenticationRequest implements Serializable {
      * @return the parsed value or an empty list if there was none
      */
     private Set<Prompt> parsePrompt() {
-        Set<Prompt> result = paramValueAsEnumSet("prompt", Prompt::get, Prompt.class);
+        String input = paramValue("prompt");
+        if (input == null) {
+            return Collections.emptySet();
+        }
+        return InternedValues.PROMPTS.get(input, AuthenticationRequest::parsePrompt);
+    }
+
+    private static Set<Prompt> parsePrompt(String input) {
+        Set<Prompt> result = split(input, Prompt::get, () -> EnumSet.noneOf(Prompt.class));
         if (result.contains(Prompt.NONE) && result.size() != 1) {
             throw new InputException(ErrorCode.INVALID_REQUEST,
                     "If prompt has value 'none' no other value may be present");
         }
-        return result;
+        return Collections.unmodifiableSet(result);
     }
 
     /**
      * Parses the response type and performs basic validation on it
      * 
-     * @return the parsed value or an empty list if there was none
+     * @return the parsed value, with empty values if there was none
      */
-    private Set<ResponseType> parseResponseType() {
-        return paramValueAsEnumSet("response_type", ResponseType::get, ResponseType.class);
+    private ResponseTypes parseResponseType() {
+        String input = paramValue("response_type");
+        if (input == null) {
+            return ResponseTypes.NONE;
+        }
+        return InternedValues.RESPONSE_TYPES.get(input, value -> new ResponseTypes(
+                split(value, ResponseType::get, () -> EnumSet.noneOf(ResponseType.class))));
     }
 
     /**
      * Parses the response mode and performs basic validation on it
      * 
-     * @return the parsed value or an empty list if there was none
+     * @param defaultMode
+     *            the mode to use if there is none, depends on the flow
+     * @return the parsed value or the default if there was none
      */
-    private ResponseMode parseResponseMode() {
+    private ResponseMode parseResponseMode(ResponseMode defaultMode) {
         String rm = paramValue("response_mode");
-        ResponseMode result;
-        if (rm != null) {
-            result = ResponseMode.get(rm);
-        } else if (this.flow == Flow.AUTHORIZATION_CODE) {
-            result = ResponseMode.QUERY;
-        } else {
-            result = ResponseMode.FRAGMENT;
-        }
-        return result;
+        return rm == null ? defaultMode : ResponseMode.get(rm);
     }
 
     /**
@@ -500,15 +585,25 @@ public class AuthenticationRequest implements Serializable {
      *             if UTF is an unsupported encoding
      */
     private Set<String> parseScope() {
+        String input = paramValue("scope");
+        if (input == null) {
+            throw new InputException(ErrorCode.INVALID_SCOPE, "'openid' must be one of the values for scope");
+        }
+        return InternedValues.SCOPES.get(input, AuthenticationRequest::parseScope);
+    }
+
+    private static Set<String> parseScope(String input) {
         // the Gluu implementation suggest that this might be URL encoded. This is not per spec so ignoring that here
-        Set<String> scopes = paramValueAsSet("scope", Function.identity());
+        Set<String> scopes = split(input, Function.identity(), HashSet::new);
         if (!scopes.contains("openid")) {
             throw new InputException(ErrorCode.INVALID_SCOPE, "'openid' must be one of the values for scope");
         }
-        if (!scopes.stream().allMatch(s -> SCOPE_PATTERN.matcher(s).matches())) {
-            throw new InputException(ErrorCode.INVALID_SCOPE, "scope %s has invalid characters", scopes);
+        for (String s : scopes) {
+            if (!SpaceDelimited.isScopeToken(s)) {
+                throw new InputException(ErrorCode.INVALID_SCOPE, "scope %s has invalid characters", scopes);
+            }
         }
-        return scopes;
+        return Collections.unmodifiableSet(scopes);
     }
 
     /**
@@ -528,39 +623,31 @@ public class AuthenticationRequest implements Serializable {
             return Collections.emptyList();
         }
         // else
-        try (Stream<String> stream = Arrays.stream(input.split(" "))) {
-            return stream.map(func).collect(Collectors.toCollection(ArrayList::new));
+        List<R> result = new ArrayList<>(4);
+        for (SpaceDelimited parts = new SpaceDelimited(input); parts.hasNext();) {
+            result.add(func.apply(parts.next()));
         }
+        return result;
     }
 
     /**
-     * Gets the value of the first parameter identified by the key. If it is null of empty (all blank characters) an
-     * empty collection is returned. Otherwise the value is split by space and each of the parts is transformed using
-     * the function. The transformed entity is added to the result set.
+     * Splits the value of a parameter by space and transforms each of the parts using the function. The transformed
+     * entity is added to the result set.
      * 
-     * @param key
-     *            the parameter
+     * @param input
+     *            the trimmed, non empty parameter value
      * @param func
      *            a non-interfering, stateless function to apply to each element
+     * @param supplier
+     *            gives the set to add to
      * @return see description
      */
-    private <R> Set<R> paramValueAsSet(String key, Function<String, R> func) {
-        return paramValueAsSet(key, func, HashSet::new);
-    }
-
-    private <R extends Enum<R>> Set<R> paramValueAsEnumSet(String key, Function<String, R> func, Class<R> klazz) {
-        return paramValueAsSet(key, func, () -> EnumSet.noneOf(klazz));
-    }
-
-    private <R> Set<R> paramValueAsSet(String key, Function<String, R> func, Supplier<Set<R>> supplier) {
-        String input = paramValue(key);
-        if (input == null) {
-            return Collections.emptySet();
-        }
-        // else
-        try (Stream<String> stream = Arrays.stream(input.split(" "))) {
-            return stream.map(func).collect(Collectors.toCollection(supplier));
+    private static <R> Set<R> split(String input, Function<String, R> func, Supplier<Set<R>> supplier) {
+        Set<R> result = supplier.get();
+        for (SpaceDelimited parts = new SpaceDelimited(input); parts.hasNext();) {
+            result.add(func.apply(parts.next()));
         }
+        return result;
     }
 
     /**
@@ -624,32 +711,51 @@ public class AuthenticationRequest implements Serializable {
      * @return see description
      */
     URI getErrorUri(InputException e) {
-        if (redirectUri == null || this.client == null || !this.client.ownsURI(this.redirectUri)) {
+        if (redirectUri == null || this.client == null) {
+            return null;
+        }
+        if (!redirectUriChecked && !this.client.ownsURI(this.redirectUri)) {
             return null;
         }
-        // @formatter:off
-        return UriBuilder
-            .fromUri(redirectUri)
-            .replaceQuery(null)
-            .queryParam("error", e.getError().toString())
-            .queryParam("error_description", e.getErrorDescription())
-            .queryParam("state", state == null ? "" : state)
-            .build();
-        // @formatter:on
+        return RedirectComposer.withError(redirectUri, e.getError().toString(), e.getErrorDescription(),
+                state == null ? "" : state);
     }
 
     /**
-     * @return the bytes of {@link ObjectOutputStream#writeObject(Object)} called on 'this'
+     * @return this request in the binary format of {@link AuthenticationRequestCodec}
      */
     public byte[] toBytes() {
-        try (ByteArrayOutputStream bos = new ByteArrayOutputStream(); ObjectOutput out = new ObjectOutputStream(bos)) {
-            out.writeObject(this);
-            return bos.toByteArray();
-        } catch (IOException e) {
-            throw new UncheckedIOException("Error while writing AuthReqForm to byte[]", e);
-        }
+        return AuthenticationRequestCodec.encode(this);
+    }
+
+    /**
+     * Seals this request, so it can travel with the authorization flow instead of being kept in the session. The
+     * result is encrypted and authenticated with the symmetric key of type "sealedRequest" from the SecretService, can
+     * be unsealed only once and expires after the given time.
+     * 
+     * @param timeToLive
+     *            how long the result can be unsealed
+     * @return a URL safe string
+     * @see #unseal(String)
+     */
+    public String seal(Duration timeToLive) {
+        return SealedRequests.seal(this, timeToLive);
     }
-    
+
+    /**
+     * Reads a request that was sealed by {@link #seal(Duration)}
+     * 
+     * @param sealed
+     *            the result of {@link #seal(Duration)}
+     * @return see description
+     * @throws InputException
+     *             if the input was not sealed by this OP, has expired, was used before, or its client is unknown or no
+     *             longer owns the redirect uri
+     */
+    public static AuthenticationRequest unseal(String sealed) {
+        return SealedRequests.unseal(sealed);
+    }
+
     /**
      * Sonar will warn about the Lists not being Serializable, yet I want to keep the semantics of the interface rather
      * than the concrete class. This keeps clients of this class honest. This method exists to get rid of the warnings.
@@ -686,15 +792,18 @@ public class AuthenticationRequest implements Serializable {
         stream.defaultReadObject();
     }
 
+    /**
+     * Reads a request that was written by {@link #toBytes()}. Requests that were written using Java serialization by
+     * earlier versions can still be read.
+     * 
+     * @param input
+     *            the bytes
+     * @return see description
+     * @throws InputException
+     *             if the input is not a valid request, or its client is unknown or no longer owns the redirect uri
+     */
     public static AuthenticationRequest fromBytes(byte[] input) {
-        try (ByteArrayInputStream bis = new ByteArrayInputStream(input); ObjectInput in = new ObjectInputStream(bis)) {
-            return (AuthenticationRequest) in.readObject();
-        } catch (ClassNotFoundException e) {
-            LOGGER.warn("expected input to be AuthenticationRequest, but {} wasn't", Arrays.toString(input));
-            throw new InputException(ErrorCode.INVALID_REQUEST, e.getMessage());
-        } catch (IOException e) {
-            throw new UncheckedIOException("Error while reading AuthReqForm from byte[]", e);
-        }
+        return AuthenticationRequestCodec.decode(input);
     }
 
     static void resetStorage() {
@@ -0,0 +1,401 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import nl.qiy.oic.op.api.param.Display;
+import nl.qiy.oic.op.api.param.Prompt;
+import nl.qiy.oic.op.api.param.ResponseMode;
+import nl.qiy.oic.op.api.param.ResponseType;
+import nl.qiy.oic.op.domain.OAuthClient;
+
+/**
+ * Binary format for an {@link AuthenticationRequest}, used to park a request during the authorization flow. The format
+ * is:
+ * 
+ * <pre>
+ * magic (0x4f), version (1)
+ * response_type          bit mask of ResponseType ordinals
+ * client_id              string
+ * redirect_uri           string
+ * scope                  count, strings
+ * present                bit mask of the optional values that follow
+ * response_mode          ordinal
+ * state, nonce           string (if present)
+ * display                ordinal (if present)
+ * prompt                 bit mask of Prompt ordinals
+ * max_age                zig-zag varint (if present)
+ * ui_locales             count, language tags
+ * id_token_hint          string (if present)
+ * login_hint             string (if present)
+ * acr_values             count, strings
+ * </pre>
+ * 
+ * All numbers are unsigned varints, strings are a varint length followed by UTF-8. The client is not written, it is
+ * looked up again by its id when reading; the flow is derived from the response type. As enums are written by
+ * ordinal, new values of ResponseType, Prompt, Display and ResponseMode must be added at the end.
+ * <p>
+ * Input written by an earlier version, which used Java serialization, is still read. Only the classes that make up an
+ * AuthenticationRequest are accepted from such a stream.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+final class AuthenticationRequestCodec {
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuthenticationRequestCodec.class);
+    private static final byte MAGIC = 0x4f;
+    private static final byte VERSION = 1;
+    private static final byte LEGACY_MAGIC = (byte) 0xac;
+
+    private static final int STATE = 1;
+    private static final int NONCE = 1 << 1;
+    private static final int DISPLAY = 1 << 2;
+    private static final int MAX_AGE = 1 << 3;
+    private static final int ID_TOKEN_HINT = 1 << 4;
+    private static final int LOGIN_HINT = 1 << 5;
+
+    // @formatter:off
+    private static final Set<String> LEGACY_CLASSES = new HashSet<>(Arrays.asList(
+            AuthenticationRequest.class.getName(),
+            ResponseType.class.getName(), ResponseMode.class.getName(), Prompt.class.getName(), 
+            Display.class.getName(), Enum.class.getName(), 
+            String.class.getName(), Integer.class.getName(), Number.class.getName(), 
+            URI.class.getName(), Locale.class.getName(), 
+            HashSet.class.getName(), ArrayList.class.getName(), 
+            "java.util.EnumSet$SerializationProxy", "[Ljava.lang.Enum;", 
+            "java.util.Collections$EmptySet", "java.util.Collections$EmptyList",
+            "java.util.Collections$UnmodifiableSet", "java.util.Collections$UnmodifiableCollection"));
+    // @formatter:on
+
+    private static final ResponseType[] RESPONSE_TYPES = ResponseType.values();
+    private static final ResponseMode[] RESPONSE_MODES = ResponseMode.values();
+    private static final Display[] DISPLAYS = Display.values();
+    private static final Prompt[] PROMPTS = Prompt.values();
+
+    /**
+     * Constructor for AuthenticationRequestCodec
+     */
+    private AuthenticationRequestCodec() {
+        super();
+    }
+
+    /**
+     * Writes the request in the binary format
+     * 
+     * @param request
+     *            the request to write
+     * @return see description
+     */
+    static byte[] encode(AuthenticationRequest request) {
+        Writer out = new Writer();
+        out.write(MAGIC);
+        out.write(VERSION);
+        out.varint(bits(request.responseType));
+        out.string(request.clientId);
+        out.string(request.redirectUri.toString());
+        out.strings(request.scope);
+
+        int present = 0;
+        present |= request.state == null ? 0 : STATE;
+        present |= request.nonce == null ? 0 : NONCE;
+        present |= request.display == null ? 0 : DISPLAY;
+        present |= request.maxAge == null ? 0 : MAX_AGE;
+        present |= request.idTokenHint == null ? 0 : ID_TOKEN_HINT;
+        present |= request.loginHint == null ? 0 : LOGIN_HINT;
+        out.varint(present);
+
+        out.varint(request.responseMode.ordinal());
+        if (request.state != null) {
+            out.string(request.state);
+        }
+        if (request.nonce != null) {
+            out.string(request.nonce);
+        }
+        if (request.display != null) {
+            out.varint(request.display.ordinal());
+        }
+        out.varint(bits(request.prompt));
+        if (request.maxAge != null) {
+            int maxAge = request.maxAge;
+            out.varint((maxAge << 1) ^ (maxAge >> 31));
+        }
+        out.varint(request.uiLocales.size());
+        for (Locale locale : request.uiLocales) {
+            out.string(locale.toLanguageTag());
+        }
+        if (request.idTokenHint != null) {
+            out.string(request.idTokenHint);
+        }
+        if (request.loginHint != null) {
+            out.string(request.loginHint);
+        }
+        out.strings(request.acrValues);
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads a request written by {@link #encode(AuthenticationRequest)}, or by Java serialization in an earlier
+     * version
+     * 
+     * @param input
+     *            the bytes
+     * @return see description
+     * @throws InputException
+     *             if the input is not a valid request, or its client is unknown or no longer owns the redirect uri
+     */
+    static AuthenticationRequest decode(byte[] input) {
+        if (input.length > 1 && input[0] == LEGACY_MAGIC) {
+            return decodeLegacy(input);
+        }
+        if (input.length < 2 || input[0] != MAGIC || input[1] != VERSION) {
+            throw new InputException(ErrorCode.INVALID_REQUEST, "not a known format for an authentication request");
+        }
+        // else
+        try {
+            Reader in = new Reader(input, 2);
+            Set<ResponseType> responseType = fromBits(in.varint(), RESPONSE_TYPES, ResponseType.class);
+            String clientId = in.string();
+            URI redirectUri = new URI(in.string());
+            Set<String> scope = in.strings(new HashSet<>());
+            int present = in.varint();
+            ResponseMode responseMode = RESPONSE_MODES[in.varint()];
+            String state = (present & STATE) == 0 ? null : in.string();
+            String nonce = (present & NONCE) == 0 ? null : in.string();
+            Display display = (present & DISPLAY) == 0 ? null : DISPLAYS[in.varint()];
+            Set<Prompt> prompt = fromBits(in.varint(), PROMPTS, Prompt.class);
+            Integer maxAge = null;
+            if ((present & MAX_AGE) != 0) {
+                int zigzag = in.varint();
+                maxAge = (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+            int localeCount = in.count();
+            List<Locale> uiLocales = localeCount == 0 ? Collections.emptyList() : new ArrayList<>(localeCount);
+            for (int i = 0; i < localeCount; i++) {
+                uiLocales.add(Locale.forLanguageTag(in.string()));
+            }
+            String idTokenHint = (present & ID_TOKEN_HINT) == 0 ? null : in.string();
+            String loginHint = (present & LOGIN_HINT) == 0 ? null : in.string();
+            List<String> acrValues = in.strings(new ArrayList<>());
+            if (acrValues.isEmpty()) {
+                acrValues = Collections.emptyList();
+            }
+            in.end();
+            // @formatter:off
+            return new AuthenticationRequest(scope, responseType, clientId, redirectUri, state, responseMode, nonce,
+                    display, prompt, maxAge, uiLocales, idTokenHint, loginHint, acrValues);
+            // @formatter:on
+        } catch (URISyntaxException | ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            LOGGER.warn("Error while decoding an authentication request", e);
+            throw new InputException(ErrorCode.INVALID_REQUEST, "corrupt authentication request");
+        }
+    }
+
+    private static AuthenticationRequest decodeLegacy(byte[] input) {
+        try (ObjectInputStream in = new LegacyInputStream(input)) {
+            return (AuthenticationRequest) in.readObject();
+        } catch (ClassNotFoundException | InvalidClassException | ClassCastException e) {
+            LOGGER.warn("expected input to be AuthenticationRequest, but it wasn't", e);
+            throw new InputException(ErrorCode.INVALID_REQUEST, e.getMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error while reading AuthReqForm from byte[]", e);
+        }
+    }
+
+    private static int bits(Collection<? extends Enum<?>> values) {
+        int result = 0;
+        for (Enum<?> value : values) {
+            result |= 1 << value.ordinal();
+        }
+        return result;
+    }
+
+    private static <E extends Enum<E>> Set<E> fromBits(int bits, E[] values, Class<E> type) {
+        if (bits == 0) {
+            return Collections.emptySet();
+        }
+        // else
+        Set<E> result = EnumSet.noneOf(type);
+        for (E value : values) {
+            if ((bits & (1 << value.ordinal())) != 0) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Only resolves the classes that are part of an AuthenticationRequest, and the clients
+     */
+    private static final class LegacyInputStream extends ObjectInputStream {
+        LegacyInputStream(byte[] input) throws IOException {
+            super(new ByteArrayInputStream(input));
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            String name = desc.getName();
+            if (LEGACY_CLASSES.contains(name)) {
+                return super.resolveClass(desc);
+            }
+            // else: the client was serialized as part of the request. Don't initialize anything before checking
+            Class<?> result = Class.forName(name, false, AuthenticationRequestCodec.class.getClassLoader());
+            if (OAuthClient.class.isAssignableFrom(result)) {
+                return result;
+            }
+            throw new InvalidClassException(name, "not allowed in an authentication request");
+        }
+    }
+
+    /**
+     * Growable byte buffer with the varint and string encoding
+     */
+    private static final class Writer {
+        private byte[] buf = new byte[256];
+        private int count;
+
+        void write(int b) {
+            ensure(1);
+            buf[count++] = (byte) b;
+        }
+
+        void varint(int value) {
+            ensure(5);
+            int v = value;
+            while ((v & ~0x7f) != 0) {
+                buf[count++] = (byte) ((v & 0x7f) | 0x80);
+                v >>>= 7;
+            }
+            buf[count++] = (byte) v;
+        }
+
+        void string(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, count, bytes.length);
+            count += bytes.length;
+        }
+
+        void strings(Collection<String> values) {
+            varint(values.size());
+            for (String value : values) {
+                string(value);
+            }
+        }
+
+        private void ensure(int extra) {
+            if (count + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + extra));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, count);
+        }
+    }
+
+    /**
+     * Reads what {@link Writer} wrote. Reading past the end throws an ArrayIndexOutOfBoundsException, counts that can't
+     * be right and bytes after the last field an IllegalArgumentException
+     */
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        int varint() {
+            int result = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = buf[pos++];
+                result |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+            }
+            throw new ArrayIndexOutOfBoundsException("varint too long");
+        }
+
+        String string() {
+            int length = varint();
+            if (length < 0 || length > buf.length - pos) {
+                throw new ArrayIndexOutOfBoundsException("string too long");
+            }
+            String result = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return result;
+        }
+
+        /**
+         * @return the number of elements that follows, each of which takes at least one byte
+         */
+        int count() {
+            int result = varint();
+            if (result < 0 || result > buf.length - pos) {
+                throw new IllegalArgumentException("count out of range: " + result);
+            }
+            return result;
+        }
+
+        /**
+         * Checks that all bytes were read
+         */
+        void end() {
+            if (pos != buf.length) {
+                throw new IllegalArgumentException((buf.length - pos) + " bytes after the last field");
+            }
+        }
+
+        <C extends Collection<String>> C strings(C result) {
+            int size = count();
+            for (int i = 0; i < size; i++) {
+                result.add(string());
+            }
+            return result;
+        }
+    }
+}
@@ -44,7 +44,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import nl.qiy.oic.op.api.param.Prompt;
-import nl.qiy.oic.op.domain.IDToken;
+import nl.qiy.oic.op.domain.AccessToken;
 import nl.qiy.oic.op.domain.OAuthUser;
 import nl.qiy.oic.op.service.AuthorizationFlowService;
 import nl.qiy.oic.op.service.OAuthUserService;
@@ -65,7 +65,15 @@ public class AuthenticationResource {
      * Standard SLF4J Logger
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(AuthenticationResource.class);
-    private static final ValidatorFactory VALIDATOR_FACTORY = Validation.buildDefaultValidatorFactory();
+
+    /**
+     * Lazy holder, Bean Validation is set up on the first request. After that it is only used if an implementation
+     * added constraints to {@link AuthenticationRequest}
+     */
+    private static final class Validators {
+        private static final ValidatorFactory VALIDATOR_FACTORY = Validation.buildDefaultValidatorFactory();
+        private static final CompiledValidation COMPILED = CompiledValidation.of(VALIDATOR_FACTORY);
+    }
 
     /**
      * Authorisation request is the OAuth name. We're actually trying to authenticate the user.
@@ -100,12 +108,21 @@ public class AuthenticationResource {
             return Response.status(Response.Status.FORBIDDEN).build();
         }
         String bearerKey = bearerToken.substring(7).trim();
-        IDToken idToken = OAuthUserService.getBearer(bearerKey);
-        if (idToken == null) {
+        if (AccessToken.isJWT(bearerKey)) {
+            // self-contained, the store only knows whether it was revoked
+            Optional<AccessToken> accessToken = AccessToken.verify(bearerKey)
+                    .filter(at -> !OAuthUserService.isRevoked(at.getId()));
+            if (!accessToken.isPresent()) {
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+            return Response.ok(accessToken.get().getUserInfo()).build();
+        }
+        byte[] userInfo = OAuthUserService.getUserInfo(bearerKey);
+        if (userInfo == null) {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
         // else
-        return Response.ok(idToken.getStandardClaims()).build();
+        return Response.ok(userInfo).build();
     }
 
     /**
@@ -127,7 +144,11 @@ public class AuthenticationResource {
      * @return see description
      */
     private static Response handleAuthNRequest(MultivaluedMap<String, String> params, @Context HttpSession session) {
-        AuthenticationRequest inputs = new AuthenticationRequest(params, VALIDATOR_FACTORY.getValidator());
+        // @formatter:off
+        AuthenticationRequest inputs = Validators.COMPILED == null
+                ? new AuthenticationRequest(params, Validators.VALIDATOR_FACTORY.getValidator())
+                : new AuthenticationRequest(params, Validators.COMPILED, RequestTemplates.current());
+        // @formatter:on
         LOGGER.debug("successfully parsed user input: {}", inputs);
 
         Optional<OAuthUser> optUser = OAuthUserService.getLoggedIn(session);
@@ -24,22 +24,24 @@ import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import javax.ws.rs.core.UriBuilder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import nl.qiy.oic.op.api.param.ResponseMode;
 import nl.qiy.oic.op.api.param.ResponseType;
+import nl.qiy.oic.op.domain.AccessToken;
 import nl.qiy.oic.op.domain.IDToken;
 import nl.qiy.oic.op.domain.OAuthUser;
+import nl.qiy.oic.op.service.ConfigKey;
+import nl.qiy.oic.op.service.ConfigurationService;
 import nl.qiy.oic.op.service.OAuthUserService;
 
 /**
@@ -58,6 +60,11 @@ public class AuthenticationResponse {
      * UTF-8 for encoding-decoding
      */
     private static final String UTF8 = StandardCharsets.UTF_8.name();
+    private static final MediaType HTML_UTF8 = MediaType.TEXT_HTML_TYPE.withCharset(UTF8);
+    /**
+     * Value of {@link ConfigKey#ACCESS_TOKEN_FORMAT} for self-contained access tokens
+     */
+    private static final String JWT_FORMAT = "jwt";
 
     private static final ThreadLocal<SecureRandom> RANDOMS = ThreadLocal.withInitial(SecureRandom::new);
 
@@ -80,46 +87,30 @@ public class AuthenticationResponse {
     public static Response getResponse(AuthenticationRequest inputs, OAuthUser user) {
         Map<String, String> params = getResponseParams(user, inputs);
         if (inputs.responseMode == ResponseMode.FORM_POST) {
-            StringBuilder form = new StringBuilder();
-            params.forEach((key, value) -> form
-                    .append(String.format("<input type=\"hidden\" name=\"%s\" value=\"%s\"/>", key, value)));
-
-            String page = String.format("<html><head><title>Submit This Form</title></head>"
-                    + "<body onload=\"javascript:document.forms[0].submit()\">"
-                    + "<form method=\"post\" action=\"%s\">%s</form></body></html>", inputs.redirectUri, form);
-            return Response.ok(page, MediaType.TEXT_HTML).build();
+            return Response.ok(new FormPostPage(inputs.redirectUri, params), HTML_UTF8).build();
         }
         // else
         return Response.seeOther(getRedirectUri(params, inputs)).build();
     }
 
     private static URI getRedirectUri(Map<String, String> params, AuthenticationRequest inputs) {
-        UriBuilder builder = UriBuilder.fromUri(inputs.redirectUri);
-        if (inputs.responseMode != ResponseMode.FORM_POST) {
-            StringBuilder sb = new StringBuilder();
-            for (Entry<String, String> entry : params.entrySet()) {
-                sb.append(entry.getKey()).append("=").append(entry.getValue()).append("&");
-            }
-
-            if (inputs.responseMode == ResponseMode.FRAGMENT) {
-                builder.fragment(sb.toString());
-            } else if (inputs.responseType.contains(ResponseType.TOKEN)
-                    && inputs.responseType.contains(ResponseType.ID_TOKEN)) {
-                LOGGER.info(
-                        "Response mode was not fragment or form_post, but response type was 'token id_token', so returning fragment");
-                // disregard the requested responseType, the spec says that we MAY NOT return a query string in this
-                // case. See http://openid.net/specs/oauth-v2-multiple-response-types-1_0.html#rfc.section.5
-                builder.fragment(sb.toString());
-            } else if (inputs.responseMode == ResponseMode.QUERY) {
-                builder.replaceQuery(sb.toString());
-            }
+        URI result;
+        if (inputs.responseMode == ResponseMode.FRAGMENT) {
+            result = RedirectComposer.withFragment(inputs.redirectUri, params);
+        } else if (inputs.responseType.contains(ResponseType.TOKEN)
+                && inputs.responseType.contains(ResponseType.ID_TOKEN)) {
+            LOGGER.info(
+                    "Response mode was not fragment or form_post, but response type was 'token id_token', so returning fragment");
+            // disregard the requested responseType, the spec says that we MAY NOT return a query string in this
+            // case. See http://openid.net/specs/oauth-v2-multiple-response-types-1_0.html#rfc.section.5
+            result = RedirectComposer.withFragment(inputs.redirectUri, params);
+        } else {
+            result = RedirectComposer.withQuery(inputs.redirectUri, params);
         }
-        URI result = builder.build();
         LOGGER.debug("redirecting to {}", result);
         return result;
     }
 
-
     private static Map<String, String> getResponseParams(OAuthUser user, AuthenticationRequest inputs) {
         Map<String, String> params = new HashMap<>();
         if (inputs.state != null) {
@@ -146,14 +137,22 @@ public class AuthenticationResponse {
         // ?????????????
 
         if (inputs.responseType.contains(ResponseType.ID_TOKEN)) {
-            IDToken idt = new IDToken(user);
+            IDToken idt = new IDToken(user, inputs.scope);
 
             if (inputs.responseType.contains(ResponseType.TOKEN)) {
-                String at = buildAccessToken();
-
-                idt.setAccessToken(at);
-
-                Long validSeconds = OAuthUserService.addBearer(at, idt);
+                String at;
+                Long validSeconds;
+                if (JWT_FORMAT.equals(ConfigurationService.get(ConfigKey.ACCESS_TOKEN_FORMAT))) {
+                    // self-contained, so it isn't stored
+                    Duration lifetime = ConfigurationService.get(ConfigKey.ACCESS_TOKEN_LIFETIME);
+                    at = AccessToken.issue(user, inputs.clientId, inputs.scope, lifetime);
+                    idt.setAccessToken(at);
+                    validSeconds = lifetime.getSeconds();
+                } else {
+                    at = buildAccessToken();
+                    idt.setAccessToken(at);
+                    validSeconds = OAuthUserService.addBearer(at, idt);
+                }
                 params.put("token_type", "bearer");
                 params.put("expires_in", validSeconds.toString());
                 params.put("access_token", at);
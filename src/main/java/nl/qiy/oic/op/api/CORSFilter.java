@@ -20,7 +20,8 @@
 package nl.qiy.oic.op.api;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import javax.servlet.Filter;
@@ -38,8 +39,13 @@ import org.slf4j.LoggerFactory;
 import nl.qiy.oic.op.service.OAuthClientService;
 
 /**
- * If you want to allow access to the OP from other sites using ajax, enable this filter. It will ask the ClientStores
- * if the origin header is supposed to be allowed
+ * If you want to allow access to the OP from other sites using ajax, enable this filter. It will ask the
+ * {@link OAuthClientService} if the origin header is supposed to be allowed, which answers from an index of all client
+ * origins that is kept up to date in the background
+ * <p>
+ * Preflight requests (OPTIONS with an Access-Control-Request-Method header) are answered by this filter, they don't go
+ * down the chain. The answer may be cached by the browser for the number of seconds in the init parameter "maxAge"
+ * (default {@value #DEFAULT_MAX_AGE}).
  *
  * @author Friso Vrolijken
  * @since 23 mei 2016
@@ -49,20 +55,39 @@ public class CORSFilter implements Filter {
      * Standard SLF4J Logger 
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(CORSFilter.class);
+    /**
+     * Seconds a browser may cache the answer to a preflight request, if not configured
+     */
+    private static final int DEFAULT_MAX_AGE = 600;
 
     /**
      * Headers that always have the same values, initialisation is done in {@link #init(FilterConfig)}
      */
-    private Map<String, String> headers = new HashMap<>(3);
+    private Map<String, String> headers;
+    /**
+     * {@link #headers} plus the ones that only go with an answer to a preflight request
+     */
+    private Map<String, String> preflightHeaders;
 
     private boolean allowAll;
 
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
-        headers.put("Access-Control-Allow-Headers",
+        Map<String, String> map = new LinkedHashMap<>();
+        map.put("Access-Control-Allow-Headers",
                 "Cache-Control, Pragma, Origin, Authorization, Content-Type, X-Requested-With, Set-Cookie, Cookie, Accept");
-        headers.put("Access-Control-Allow-Methods", "GET, POST, OPTIONS, HEAD");
-        headers.put("Access-Control-Allow-Credentials", "false");
+        map.put("Access-Control-Allow-Methods", "GET, POST, OPTIONS, HEAD");
+        map.put("Access-Control-Allow-Credentials", "false");
+        headers = Collections.unmodifiableMap(new LinkedHashMap<>(map));
+
+        String maxAge = filterConfig.getInitParameter("maxAge");
+        try {
+            map.put("Access-Control-Max-Age",
+                    Integer.toString(maxAge == null ? DEFAULT_MAX_AGE : Integer.parseUnsignedInt(maxAge.trim())));
+        } catch (NumberFormatException e) {
+            throw new ServletException("maxAge should be a number of seconds, not " + maxAge, e);
+        }
+        preflightHeaders = Collections.unmodifiableMap(map);
 
         allowAll = Boolean.parseBoolean(filterConfig.getInitParameter("allowAll"));
     }
@@ -85,12 +110,24 @@ public class CORSFilter implements Filter {
             }
         }
 
+        if (!allowAll) {
+            // the answer depends on the Origin, caches should know
+            response.setHeader("Vary", "Origin");
+        }
+
+        boolean preflight = "OPTIONS".equals(request.getMethod())
+                && request.getHeader("Access-Control-Request-Method") != null;
         if (origin != null) {
             response.setHeader("Access-Control-Allow-Origin", origin);
             // copy the headers from the map to the response
-            headers.forEach(response::setHeader);
+            (preflight ? preflightHeaders : headers).forEach(response::setHeader);
         }
 
+        if (preflight) {
+            // nothing for the resources to do, without the headers above the browser will refuse the actual request
+            response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+            return;
+        }
         chain.doFilter(request, response);
     }
 
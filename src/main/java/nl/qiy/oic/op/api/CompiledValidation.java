@@ -0,0 +1,217 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.api;
+
+import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.validation.MessageInterpolator;
+import javax.validation.ValidationException;
+import javax.validation.Validator;
+import javax.validation.ValidatorFactory;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Size;
+import javax.validation.groups.Default;
+import javax.validation.metadata.BeanDescriptor;
+import javax.validation.metadata.ConstraintDescriptor;
+import javax.validation.metadata.PropertyDescriptor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Checks the Bean Validation constraints of {@link AuthenticationRequest} in plain code, so a request doesn't go
+ * through the validator's reflection and metadata on every call. The error messages are the ones the validator would
+ * give: they are interpolated once, when this is made. With more than one violation, the responseType comes first;
+ * validators don't define an order.
+ * <p>
+ * This only works as long as the constraints are the ones this class knows. {@link #of(ValidatorFactory)} compares
+ * them with what the validator finds (annotations as well as constraint mappings) and returns null if an
+ * implementation added any, in which case the validator must be used.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+final class CompiledValidation {
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompiledValidation.class);
+    private static final String RESPONSE_TYPE = "responseType";
+    private static final String CLIENT_ID = "clientId";
+    private static final String NOT_BLANK = "\\S+";
+
+    private final String responseTypeNotNull;
+    private final String responseTypeSize;
+    private final String clientIdNotNull;
+    private final String clientIdPattern;
+
+    private CompiledValidation(Map<String, String> messages) {
+        super();
+        this.responseTypeNotNull = messages.get(RESPONSE_TYPE + NotNull.class.getSimpleName());
+        this.responseTypeSize = messages.get(RESPONSE_TYPE + Size.class.getSimpleName());
+        this.clientIdNotNull = messages.get(CLIENT_ID + NotNull.class.getSimpleName());
+        this.clientIdPattern = messages.get(CLIENT_ID + Pattern.class.getSimpleName());
+    }
+
+    /**
+     * Returns the compiled validation for the constraints that the factory's validators check on
+     * {@link AuthenticationRequest}.
+     * 
+     * @param factory
+     *            the factory whose validator and message interpolator are used
+     * @return see description, null if the constraints are not the known ones
+     */
+    static CompiledValidation of(ValidatorFactory factory) {
+        Validator validator = factory.getValidator();
+        BeanDescriptor bean = validator.getConstraintsForClass(AuthenticationRequest.class);
+        if (!bean.getConstraintDescriptors().isEmpty() || bean.getConstrainedProperties().size() != 2) {
+            LOGGER.info("AuthenticationRequest has other constraints than the known ones, using the validator");
+            return null;
+        }
+        Map<String, String> messages = new HashMap<>();
+        for (PropertyDescriptor property : bean.getConstrainedProperties()) {
+            if (property.isCascaded()) {
+                return null;
+            }
+            for (ConstraintDescriptor<?> constraint : property.getConstraintDescriptors()) {
+                if (!isKnown(property.getPropertyName(), constraint)) {
+                    LOGGER.info("Unknown constraint {} on {}, using the validator", constraint,
+                            property.getPropertyName());
+                    return null;
+                }
+                String key = property.getPropertyName() + constraint.getAnnotation().annotationType().getSimpleName();
+                messages.put(key, interpolate(factory.getMessageInterpolator(), constraint));
+            }
+        }
+        return messages.size() == 4 ? new CompiledValidation(messages) : null;
+    }
+
+    private static boolean isKnown(String property, ConstraintDescriptor<?> constraint) {
+        if (!Collections.singleton(Default.class).equals(constraint.getGroups())
+                || !constraint.getComposingConstraints().isEmpty()) {
+            return false;
+        }
+        Annotation annotation = constraint.getAnnotation();
+        if (annotation instanceof NotNull) {
+            return RESPONSE_TYPE.equals(property) || CLIENT_ID.equals(property);
+        }
+        if (annotation instanceof Size) {
+            Size size = (Size) annotation;
+            return RESPONSE_TYPE.equals(property) && size.min() == 1 && size.max() == Integer.MAX_VALUE;
+        }
+        if (annotation instanceof Pattern) {
+            Pattern pattern = (Pattern) annotation;
+            return CLIENT_ID.equals(property) && NOT_BLANK.equals(pattern.regexp()) && pattern.flags().length == 0;
+        }
+        return false;
+    }
+
+    private static String interpolate(MessageInterpolator interpolator, ConstraintDescriptor<?> constraint) {
+        try {
+            return interpolator.interpolate(constraint.getMessageTemplate(), new MessageInterpolator.Context() {
+                @Override
+                public ConstraintDescriptor<?> getConstraintDescriptor() {
+                    return constraint;
+                }
+
+                @Override
+                public Object getValidatedValue() {
+                    return null;
+                }
+
+                @Override
+                public <T> T unwrap(Class<T> type) {
+                    throw new ValidationException("Can't unwrap to " + type);
+                }
+            });
+        } catch (ValidationException e) {
+            LOGGER.warn("Can't interpolate {}, using the template", constraint.getMessageTemplate(), e);
+            return constraint.getMessageTemplate();
+        }
+    }
+
+    /**
+     * Checks the constraints
+     * 
+     * @param request
+     *            the request, fully constructed
+     * @throws InputException
+     *             with the same description as a check by the validator would give
+     */
+    void validate(AuthenticationRequest request) {
+        StringBuilder message = null;
+        Set<?> responseType = request.responseType;
+        if (responseType == null) {
+            message = append(message, RESPONSE_TYPE, null, responseTypeNotNull);
+        } else if (responseType.isEmpty()) {
+            message = append(message, RESPONSE_TYPE, responseType, responseTypeSize);
+        }
+        String clientId = request.clientId;
+        if (clientId == null) {
+            message = append(message, CLIENT_ID, null, clientIdNotNull);
+        } else if (!isNotBlank(clientId)) {
+            message = append(message, CLIENT_ID, clientId, clientIdPattern);
+        }
+        if (message != null) {
+            throw new InputException(ErrorCode.INVALID_REQUEST, message.toString());
+        }
+    }
+
+    private static StringBuilder append(StringBuilder message, String property, Object value, String text) {
+        StringBuilder result = message == null ? new StringBuilder() : message;
+        // @formatter:off
+        result
+            .append(property)
+            .append(" [").append(value).append("]: ")
+            .append(text)
+            .append("\n");
+        // @formatter:on
+        return result;
+    }
+
+    /**
+     * @return true iff the value matches \S+
+     */
+    private static boolean isNotBlank(String value) {
+        int length = value.length();
+        if (length == 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            switch (value.charAt(i)) {
+            case ' ':
+            case '\t':
+            case '\n':
+            case 0x0B:
+            case '\f':
+            case '\r':
+                return false;
+            default:
+                break;
+            }
+        }
+        return true;
+    }
+}
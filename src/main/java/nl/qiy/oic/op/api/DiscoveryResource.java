@@ -21,6 +21,7 @@ package nl.qiy.oic.op.api;
 
 import java.lang.reflect.Method;
 import java.net.URI;
+import java.time.Instant;
 import java.util.stream.Stream;
 
 import javax.ws.rs.GET;
@@ -31,8 +32,8 @@ import javax.ws.rs.core.UriBuilder;
 
 import net.minidev.json.JSONObject;
 import nl.qiy.oic.op.service.ConfigurationService;
+import nl.qiy.oic.op.service.KeyMaterial;
 import nl.qiy.oic.op.service.SecretService;
-import nl.qiy.oic.op.service.spi.Configuration;
 
 /**
  * Helper that should be extended to implement discovery, for now, just do parts
@@ -42,22 +43,59 @@ import nl.qiy.oic.op.service.spi.Configuration;
  */
 @Path(".well-known")
 public class DiscoveryResource {
-    private static URI authEndpointUri;
-    private static URI userInfoUri;
-    private static URI jwksUri;
+    private static volatile URI authEndpointUri;
+    private static volatile URI userInfoUri;
+    private static volatile URI jwksUri;
+    /**
+     * Made on first use, made again when the configuration changes, the ID token keys are rotated or a replaced key
+     * is no longer published
+     */
+    private static volatile PublishedMetadata metadata;
+
+    static {
+        ConfigurationService.addChangeListener((old, current) -> configurationChanged());
+        SecretService.addRotationListener((old, current) -> {
+            if ("idToken".equals(current.getType())) {
+                metadata = newMetadata();
+            }
+        });
+    }
 
     @Path("openid-configuration")
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @SuppressWarnings("ucd")
     public static OpenIDProviderMetadata getOpenIdConfiguration() {
-        return new OpenIDProviderMetadata(getAuthEndpoinURI(), getUserInfoEndpointURI(), getJwksURI(),
-                SecretService.getJWKSet("idToken"));
+        PublishedMetadata result = metadata;
+        if (result == null || result.isExpired()) {
+            result = newMetadata();
+            metadata = result;
+        }
+        return result.metadata;
+    }
+
+    private static PublishedMetadata newMetadata() {
+        KeyMaterial keys = SecretService.getKeyMaterial("idToken");
+        // asked before the set is made, so no key in the set is dropped before the metadata expires
+        Instant until = keys.getPublishedUntil().orElse(null);
+        OpenIDProviderMetadata result = new OpenIDProviderMetadata(getAuthEndpoinURI(), getUserInfoEndpointURI(),
+                getJwksURI(), keys.getPublishedSet());
+        return new PublishedMetadata(result, until);
+    }
+
+    /**
+     * Builds the URIs and the metadata from the new configuration, so the next request finds them ready
+     */
+    private static void configurationChanged() {
+        authEndpointUri = null;
+        userInfoUri = null;
+        jwksUri = null;
+        metadata = newMetadata();
     }
 
     private static URI getUserInfoEndpointURI() {
         if (userInfoUri == null) {
-            String baseUri = ConfigurationService.get(Configuration.BASE_URI);
+            URI baseUri = ConfigurationService.current().getBaseUri();
 
             try (Stream<Method> methods = Stream.of(AuthenticationResource.class.getDeclaredMethods())) {
                 // @formatter:off
@@ -77,7 +115,7 @@ public class DiscoveryResource {
 
     private static URI getJwksURI() {
         if (jwksUri == null) {
-            String baseUri = ConfigurationService.get(Configuration.BASE_URI);
+            URI baseUri = ConfigurationService.current().getBaseUri();
 
             try (Stream<Method> methods = Stream.of(DiscoveryResource.class.getDeclaredMethods())) {
                 // @formatter:off
@@ -98,7 +136,7 @@ public class DiscoveryResource {
 
     private static URI getAuthEndpoinURI() {
         if (authEndpointUri == null) {
-            String baseUri = ConfigurationService.get(Configuration.BASE_URI);
+            URI baseUri = ConfigurationService.current().getBaseUri();
             UriBuilder builder = UriBuilder.fromUri(baseUri);
             // builder path (authrequest.class) and path (method) but those are both be empty
             URI result = builder.build();
@@ -112,7 +150,8 @@ public class DiscoveryResource {
     @Produces(MediaType.APPLICATION_JSON)
     @SuppressWarnings("ucd")
     public static JSONObject getKeySet() {
-        return SecretService.getJWKSet("idToken").toJSONObject(true);
+        // during a rotation this contains both the new and the replaced keys
+        return SecretService.getKeyMaterial("idToken").getPublishedSet().toJSONObject(true);
     }
 
     @Override
@@ -120,4 +159,21 @@ public class DiscoveryResource {
         return "only exists to satisfy SonarLint";
     }
 
+    /**
+     * The metadata together with the moment the first replaced key in it should no longer be published
+     */
+    private static final class PublishedMetadata {
+        private final OpenIDProviderMetadata metadata;
+        private final Instant until;
+
+        PublishedMetadata(OpenIDProviderMetadata metadata, Instant until) {
+            this.metadata = metadata;
+            this.until = until;
+        }
+
+        boolean isExpired() {
+            return until != null && !Instant.now().isBefore(until);
+        }
+    }
+
 }
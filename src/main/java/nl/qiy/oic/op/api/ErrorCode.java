@@ -26,7 +26,7 @@ package nl.qiy.oic.op.api;
  * @since 28 apr. 2016
  */
 public enum ErrorCode {
-    INVALID_REQUEST, /* UNAUTHORIZED_CLIENT, ACCESS_DENIED, */UNSUPPORTED_RESPONSE_TYPE, INVALID_SCOPE, SERVER_ERROR, /* TEMPORARILY_UNAVAILABLE */;
+    INVALID_REQUEST, /* UNAUTHORIZED_CLIENT, ACCESS_DENIED, */UNSUPPORTED_RESPONSE_TYPE, INVALID_SCOPE, SERVER_ERROR, TEMPORARILY_UNAVAILABLE;
 
     @Override
     public String toString() {
@@ -0,0 +1,187 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.api;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * The page for response mode form_post, see
+ * <a href="http://openid.net/specs/oauth-v2-form-post-response-mode-1_0.html">OAuth 2.0 Form Post Response Mode</a>: a
+ * form with the response parameters as hidden inputs that submits itself to the redirect uri.
+ * <p>
+ * The fixed parts of the page are UTF-8 bytes made once. The page is written into a buffer of the writing thread, which
+ * is kept for the next page, and then to the output in one go. The action and the parameters are escaped for use in
+ * an attribute value.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+final class FormPostPage implements StreamingOutput {
+    private static final byte[] PREFIX = bytes("<html><head><title>Submit This Form</title></head>"
+            + "<body onload=\"javascript:document.forms[0].submit()\"><form method=\"post\" action=\"");
+    private static final byte[] ACTION_END = bytes("\">");
+    private static final byte[] INPUT_NAME = bytes("<input type=\"hidden\" name=\"");
+    private static final byte[] INPUT_VALUE = bytes("\" value=\"");
+    private static final byte[] INPUT_END = bytes("\"/>");
+    private static final byte[] SUFFIX = bytes("</form></body></html>");
+    /**
+     * Buffers that grew larger than this are not kept
+     */
+    private static final int MAX_KEPT = 16 * 1024;
+
+    private static final ThreadLocal<Buffer> BUFFERS = ThreadLocal.withInitial(Buffer::new);
+
+    private final String action;
+    private final Map<String, String> params;
+
+    /**
+     * Constructor for FormPostPage
+     *
+     * @param action
+     *            where the form is posted to
+     * @param params
+     *            the hidden inputs, must not be changed after this
+     */
+    FormPostPage(URI action, Map<String, String> params) {
+        super();
+        this.action = action.toString();
+        this.params = params;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        Buffer buffer = BUFFERS.get();
+        try {
+            buffer.append(PREFIX).appendEscaped(action).append(ACTION_END);
+            for (Map.Entry<String, String> param : params.entrySet()) {
+                // @formatter:off
+                buffer
+                    .append(INPUT_NAME).appendEscaped(param.getKey())
+                    .append(INPUT_VALUE).appendEscaped(param.getValue())
+                    .append(INPUT_END);
+                // @formatter:on
+            }
+            buffer.append(SUFFIX);
+            output.write(buffer.bytes, 0, buffer.count);
+        } finally {
+            if (buffer.bytes.length > MAX_KEPT) {
+                BUFFERS.remove();
+            } else {
+                buffer.count = 0;
+            }
+        }
+    }
+
+    /**
+     * A growing byte array that writes strings as UTF-8
+     */
+    private static final class Buffer {
+        private byte[] bytes = new byte[2048];
+        private int count = 0;
+
+        Buffer append(byte[] value) {
+            ensure(value.length);
+            System.arraycopy(value, 0, bytes, count, value.length);
+            count += value.length;
+            return this;
+        }
+
+        /**
+         * Appends the value as UTF-8, with the characters that have a meaning in HTML replaced by their character
+         * reference
+         *
+         * @param value
+         *            the value, null is written as "null" like String.format did
+         * @return this
+         */
+        Buffer appendEscaped(String value) {
+            String text = String.valueOf(value);
+            int length = text.length();
+            // the longest replacement and the longest UTF-8 sequence per char are 6 and 3 bytes
+            ensure(length * 6);
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                case '&':
+                    ascii("&amp;");
+                    break;
+                case '<':
+                    ascii("&lt;");
+                    break;
+                case '>':
+                    ascii("&gt;");
+                    break;
+                case '"':
+                    ascii("&quot;");
+                    break;
+                case '\'':
+                    ascii("&#39;");
+                    break;
+                default:
+                    if (c < 0x80) {
+                        bytes[count++] = (byte) c;
+                    } else if (c < 0x800) {
+                        bytes[count++] = (byte) (0xc0 | (c >> 6));
+                        bytes[count++] = (byte) (0x80 | (c & 0x3f));
+                    } else if (Character.isHighSurrogate(c) && i + 1 < length
+                            && Character.isLowSurrogate(text.charAt(i + 1))) {
+                        int cp = Character.toCodePoint(c, text.charAt(++i));
+                        bytes[count++] = (byte) (0xf0 | (cp >> 18));
+                        bytes[count++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                        bytes[count++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                        bytes[count++] = (byte) (0x80 | (cp & 0x3f));
+                    } else if (Character.isSurrogate(c)) {
+                        // unpaired, like String.getBytes does
+                        bytes[count++] = '?';
+                    } else {
+                        bytes[count++] = (byte) (0xe0 | (c >> 12));
+                        bytes[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                        bytes[count++] = (byte) (0x80 | (c & 0x3f));
+                    }
+                    break;
+                }
+            }
+            return this;
+        }
+
+        private void ascii(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                bytes[count++] = (byte) value.charAt(i);
+            }
+        }
+
+        private void ensure(int extra) {
+            if (count + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, count + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.api;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import nl.qiy.oic.op.api.param.Flow;
+import nl.qiy.oic.op.api.param.Prompt;
+import nl.qiy.oic.op.api.param.ResponseMode;
+import nl.qiy.oic.op.api.param.ResponseType;
+import nl.qiy.oic.op.domain.ClaimScope;
+
+/**
+ * Canonical instances of the parsed values of the scope, response_type and prompt parameters, keyed by the (trimmed)
+ * parameter value. Clients send only a handful of distinct combinations, so requests share one immutable set instead
+ * of each parsing its own, and code further on may cache what it derives from such a set by its identity.
+ * <p>
+ * Only values that parsed without errors and that consist of known words (single space separated, each at most once)
+ * are kept, so a client can't fill the table with values of its own: the number of values per parameter is bounded by
+ * the orderings of its words. Other values are parsed as before and not kept.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+final class InternedValues<V> {
+    // @formatter:off
+    static final InternedValues<Set<String>> SCOPES = new InternedValues<>(Stream.concat(
+            Stream.of("openid"),
+            Stream.of(ClaimScope.values()).map(ClaimScope::getValue)));
+    // @formatter:on
+    static final InternedValues<ResponseTypes> RESPONSE_TYPES = new InternedValues<>(
+            Stream.of(ResponseType.values()).map(ResponseType::toString));
+    static final InternedValues<Set<Prompt>> PROMPTS = new InternedValues<>(
+            Stream.of(Prompt.values()).map(Prompt::toString));
+
+    private final Set<String> words;
+    private final ConcurrentMap<String, V> values = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for InternedValues
+     *
+     * @param words
+     *            the words a value must consist of to be kept
+     */
+    InternedValues(Stream<String> words) {
+        super();
+        this.words = Collections.unmodifiableSet(words.collect(Collectors.toSet()));
+    }
+
+    /**
+     * Returns the canonical value for the input, parsing it if it wasn't seen before
+     *
+     * @param input
+     *            the trimmed, non empty parameter value
+     * @param parser
+     *            parses the input into an immutable value, may throw an {@link InputException}
+     * @return see description
+     */
+    V get(String input, Function<String, V> parser) {
+        V result = values.get(input);
+        if (result == null) {
+            result = parser.apply(input);
+            if (isKnown(input)) {
+                V previous = values.putIfAbsent(input, result);
+                if (previous != null) {
+                    result = previous;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param input
+     *            the trimmed parameter value
+     * @return true if the input consists of known words separated by a single space, none of them twice
+     */
+    private boolean isKnown(String input) {
+        Set<String> seen = new HashSet<>();
+        for (String word : input.split(" ", -1)) {
+            if (!words.contains(word) || !seen.add(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of values that are kept
+     */
+    int size() {
+        return values.size();
+    }
+
+    /**
+     * The response types of a request with what they determine: the flow and the response mode to use when the request
+     * has none
+     */
+    static final class ResponseTypes {
+        static final ResponseTypes NONE = new ResponseTypes(Collections.emptySet());
+
+        final Set<ResponseType> values;
+        final Flow flow;
+        final ResponseMode defaultMode;
+
+        /**
+         * Constructor for ResponseTypes
+         *
+         * @param values
+         *            the parsed response types, must not be changed after this
+         */
+        ResponseTypes(Set<ResponseType> values) {
+            super();
+            this.values = Collections.unmodifiableSet(values);
+            this.flow = flow(values);
+            this.defaultMode = flow == Flow.AUTHORIZATION_CODE ? ResponseMode.QUERY : ResponseMode.FRAGMENT;
+        }
+
+        /**
+         * As stated in http://openid.net/specs/openid-connect-core-1_0.html#Authentication the flow can be derived from
+         * the response_type
+         *
+         * @param responseType
+         *            the response types of the request
+         * @return see description
+         */
+        static Flow flow(Set<ResponseType> responseType) {
+            Flow result;
+            if (responseType.contains(ResponseType.CODE)) {
+                if (responseType.size() == 1) {
+                    result = Flow.AUTHORIZATION_CODE;
+                } else {
+                    result = Flow.HYBRID;
+                }
+            } else {
+                result = Flow.IMPLICIT;
+            }
+            return result;
+        }
+    }
+}
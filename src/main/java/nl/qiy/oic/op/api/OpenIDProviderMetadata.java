@@ -39,7 +39,6 @@ import nl.qiy.oic.op.api.param.ResponseType;
 import nl.qiy.oic.op.api.param.SubjectType;
 import nl.qiy.oic.op.domain.KeyUsePredicate;
 import nl.qiy.oic.op.service.ConfigurationService;
-import nl.qiy.oic.op.service.spi.Configuration;
 
 /**
  * Serializes to JSON, to help with the .well-known/openid-provider request This type is subclassable, so if you want to
@@ -354,7 +353,7 @@ public class OpenIDProviderMetadata {
 
     public OpenIDProviderMetadata(URI authorizationEndpoint, URI userInfoEndpoint, URI jwksUri, JWKSet idTokenJWKInfo) {
         super();
-        this.issuer = URI.create(ConfigurationService.get(Configuration.ISS));
+        this.issuer = ConfigurationService.current().getIssuerUri();
         this.authorizationEndpoint = authorizationEndpoint;
         this.tokenEndpoint = null; // no token endpoint yet
         this.userinfoEndpoint = userInfoEndpoint;
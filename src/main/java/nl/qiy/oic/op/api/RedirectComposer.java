@@ -0,0 +1,183 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.api;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * Appends response parameters to a redirect uri in one pass over a buffer of the calling thread, instead of having a
+ * UriBuilder parse the uri again. The result is the same as what UriBuilder made before:
+ * <ul>
+ * <li>{@link #withQuery(URI, Map)} and {@link #withFragment(URI, Map)} write every parameter as
+ * {@code name=value&}, replacing the query or adding the fragment, and encode like UriBuilder.replaceQuery and
+ * UriBuilder.fragment did: unreserved characters, '&amp;', '=' and '+' are kept;
+ * <li>{@link #withError(URI, String, String, String)} replaces the query with the error parameters, encoded like
+ * UriBuilder.queryParam did: only unreserved characters are kept and a space becomes a plus.
+ * </ul>
+ * Other characters are percent-encoded as UTF-8, except a percent sign that starts an escape (e.g. in the already
+ * encoded state). Curly braces, which UriBuilder took for a template and failed on, are encoded. Like UriBuilder, a
+ * uri with an authority but no path gets "/" as its path.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+final class RedirectComposer {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    /**
+     * Characters that are not encoded in the query and in the fragment: unreserved, '&amp;', '=' and '+'
+     */
+    private static final boolean[] COMPONENT = new boolean[128];
+    /**
+     * Characters that are not encoded in a query parameter: unreserved
+     */
+    private static final boolean[] PARAM = new boolean[128];
+
+    static {
+        for (int c = 0; c < PARAM.length; c++) {
+            PARAM[c] = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || "-._~".indexOf(c) >= 0;
+            COMPONENT[c] = PARAM[c] || "&=+".indexOf(c) >= 0;
+        }
+    }
+
+    private static final ThreadLocal<StringBuilder> BUFFERS = ThreadLocal.withInitial(() -> new StringBuilder(512));
+
+    private RedirectComposer() {
+        super();
+    }
+
+    /**
+     * @param redirectUri
+     *            the uri to redirect to
+     * @param params
+     *            the response parameters
+     * @return the redirect uri with its query replaced by the parameters
+     */
+    static URI withQuery(URI redirectUri, Map<String, String> params) {
+        StringBuilder result = start(redirectUri, true).append('?');
+        appendAll(result, params);
+        return URI.create(result.toString());
+    }
+
+    /**
+     * @param redirectUri
+     *            the uri to redirect to, without a fragment
+     * @param params
+     *            the response parameters
+     * @return the redirect uri with the parameters as its fragment
+     */
+    static URI withFragment(URI redirectUri, Map<String, String> params) {
+        StringBuilder result = start(redirectUri, false).append('#');
+        appendAll(result, params);
+        return URI.create(result.toString());
+    }
+
+    /**
+     * @param redirectUri
+     *            the uri to redirect to
+     * @param error
+     *            value for the error parameter
+     * @param description
+     *            value for the error_description parameter
+     * @param state
+     *            value for the state parameter, not null
+     * @return the redirect uri with its query replaced by the error parameters
+     */
+    static URI withError(URI redirectUri, String error, String description, String state) {
+        StringBuilder result = start(redirectUri, true);
+        result.append("?error=");
+        encode(result, error, PARAM);
+        result.append("&error_description=");
+        encode(result, description, PARAM);
+        result.append("&state=");
+        encode(result, state, PARAM);
+        return URI.create(result.toString());
+    }
+
+    /**
+     * @return the buffer of this thread, holding the uri without the query if it is to be replaced
+     */
+    private static StringBuilder start(URI redirectUri, boolean replaceQuery) {
+        StringBuilder result = BUFFERS.get();
+        result.setLength(0);
+        String uri = redirectUri.toString();
+        int query = redirectUri.getRawQuery() == null ? uri.length() : uri.indexOf('?');
+        result.append(uri, 0, query);
+        if (redirectUri.getRawAuthority() != null && redirectUri.getRawPath().isEmpty()) {
+            result.append('/');
+        }
+        if (!replaceQuery) {
+            result.append(uri, query, uri.length());
+        }
+        return result;
+    }
+
+    private static void appendAll(StringBuilder result, Map<String, String> params) {
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            encode(result, param.getKey(), COMPONENT);
+            result.append('=');
+            encode(result, param.getValue(), COMPONENT);
+            result.append('&');
+        }
+    }
+
+    private static void encode(StringBuilder result, String value, boolean[] allowed) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (allowed[c] || (c == '%' && i + 2 < length && isHex(value.charAt(i + 1))
+                        && isHex(value.charAt(i + 2)))) {
+                    result.append(c);
+                } else if (c == ' ' && allowed == PARAM) {
+                    result.append('+');
+                } else {
+                    percent(result, c);
+                }
+            } else if (c < 0x800) {
+                percent(result, 0xc0 | (c >> 6));
+                percent(result, 0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                percent(result, 0xf0 | (cp >> 18));
+                percent(result, 0x80 | ((cp >> 12) & 0x3f));
+                percent(result, 0x80 | ((cp >> 6) & 0x3f));
+                percent(result, 0x80 | (cp & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // unpaired, like String.getBytes does
+                percent(result, '?');
+            } else {
+                percent(result, 0xe0 | (c >> 12));
+                percent(result, 0x80 | ((c >> 6) & 0x3f));
+                percent(result, 0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    private static void percent(StringBuilder result, int b) {
+        result.append('%').append(HEX[b >> 4]).append(HEX[b & 0xf]);
+    }
+
+    private static boolean isHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+}
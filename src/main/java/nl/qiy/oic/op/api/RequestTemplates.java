@@ -0,0 +1,201 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.api;
+
+import java.net.URI;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import nl.qiy.oic.op.api.InternedValues.ResponseTypes;
+import nl.qiy.oic.op.domain.OAuthClient;
+import nl.qiy.oic.op.service.ConfigKey;
+import nl.qiy.oic.op.service.ConfigurationService;
+import nl.qiy.oic.op.service.OAuthClientService;
+
+/**
+ * Keeps the part of an {@link AuthenticationRequest} that relying parties send the same on every request: the client
+ * with its checked redirect uri, the scope and the response type. A request with the same client_id, redirect_uri,
+ * scope and response_type values only parses and validates the other parameters.
+ * <p>
+ * A template is bound to the {@link OAuthClient} instance it was checked against. When {@link OAuthClientService}
+ * gives another instance (after {@link OAuthClientService#clientChanged(String)} or when its cache loaded the client
+ * again) the template is dropped and the request is parsed in full. The number of templates is bounded by
+ * {@link ConfigKey#REQUEST_CACHE_SIZE}: when full, all are dropped.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+final class RequestTemplates {
+    /**
+     * Null until the cache is first used, replaced when the configured size changes
+     */
+    private static volatile RequestTemplates instance;
+
+    private final int maxSize;
+    private final ConcurrentMap<Key, RequestTemplate> templates = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for RequestTemplates
+     *
+     * @param maxSize
+     *            the maximum number of templates
+     */
+    RequestTemplates(int maxSize) {
+        super();
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the templates to use, null if {@link ConfigKey#REQUEST_CACHE_SIZE} is not positive
+     */
+    static RequestTemplates current() {
+        int size = ConfigurationService.get(ConfigKey.REQUEST_CACHE_SIZE).intValue();
+        if (size <= 0) {
+            return null;
+        }
+        RequestTemplates result = instance;
+        if (result == null || result.maxSize != size) {
+            // racing threads may each make one, the others are forgotten
+            result = new RequestTemplates(size);
+            instance = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the template for the given values, if there is one and its client hasn't changed
+     *
+     * @param clientId
+     *            value of the client_id parameter
+     * @param redirectUri
+     *            value of the redirect_uri parameter
+     * @param scope
+     *            value of the scope parameter
+     * @param responseType
+     *            value of the response_type parameter
+     * @return see description, null if the request has to be parsed in full
+     */
+    RequestTemplate find(String clientId, String redirectUri, String scope, String responseType) {
+        Key key = new Key(clientId, redirectUri, scope, responseType);
+        RequestTemplate result = templates.get(key);
+        if (result != null && !result.isCurrent()) {
+            templates.remove(key, result);
+            result = null;
+        }
+        return result;
+    }
+
+    /**
+     * Keeps a template that was parsed and checked without errors for the given values
+     *
+     * @param clientId
+     *            value of the client_id parameter
+     * @param redirectUri
+     *            value of the redirect_uri parameter
+     * @param scope
+     *            value of the scope parameter
+     * @param responseType
+     *            value of the response_type parameter
+     * @param template
+     *            the parsed values
+     */
+    void put(String clientId, String redirectUri, String scope, String responseType, RequestTemplate template) {
+        if (templates.size() >= maxSize) {
+            templates.clear();
+        }
+        templates.put(new Key(clientId, redirectUri, scope, responseType), template);
+    }
+
+    /**
+     * @return the number of templates
+     */
+    int size() {
+        return templates.size();
+    }
+
+    /**
+     * The parsed and checked static values of a request
+     */
+    static final class RequestTemplate {
+        final String clientId;
+        final URI redirectUri;
+        final OAuthClient client;
+        final Set<String> scope;
+        final ResponseTypes responseTypes;
+
+        RequestTemplate(String clientId, URI redirectUri, OAuthClient client, Set<String> scope,
+                ResponseTypes responseTypes) {
+            super();
+            this.clientId = clientId;
+            this.redirectUri = redirectUri;
+            this.client = client;
+            this.scope = scope;
+            this.responseTypes = responseTypes;
+        }
+
+        /**
+         * @return whether the client service still gives the client this template was checked against
+         */
+        boolean isCurrent() {
+            return OAuthClientService.getById(clientId).orElse(null) == client;
+        }
+    }
+
+    /**
+     * The parameter values a template is kept by, any of which may be null
+     */
+    private static final class Key {
+        private final String clientId;
+        private final String redirectUri;
+        private final String scope;
+        private final String responseType;
+        private final int hash;
+
+        Key(String clientId, String redirectUri, String scope, String responseType) {
+            super();
+            this.clientId = clientId;
+            this.redirectUri = redirectUri;
+            this.scope = scope;
+            this.responseType = responseType;
+            this.hash = Objects.hash(clientId, redirectUri, scope, responseType);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && Objects.equals(clientId, other.clientId)
+                    && Objects.equals(redirectUri, other.redirectUri) && Objects.equals(scope, other.scope)
+                    && Objects.equals(responseType, other.responseType);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
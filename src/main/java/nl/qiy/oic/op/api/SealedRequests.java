@@ -0,0 +1,244 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.api;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.JWEObject;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.crypto.DirectDecrypter;
+import com.nimbusds.jose.crypto.DirectEncrypter;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+
+import nl.qiy.oic.op.domain.KeyUsePredicate;
+import nl.qiy.oic.op.service.KeyMaterial;
+import nl.qiy.oic.op.service.SecretService;
+
+/**
+ * Seals an {@link AuthenticationRequest} into a compact JWE (alg dir, AES GCM) that can travel with the authorization
+ * flow, so the request does not have to be kept in the session. The key is the symmetric key of type
+ * {@value #KEY_TYPE} from the {@link SecretService}; keys that were rotated out can still unseal during their overlap
+ * window.
+ * <p>
+ * The plain text is a version byte, a random id (jti), the expiry in epoch seconds and the request as written by
+ * {@link AuthenticationRequestCodec}. A sealed request can be unsealed once: the ids are remembered in a bounded cache
+ * until they expire. That cache is local to this node, so a request that is replayed to another node is only stopped
+ * by the expiry; keep the time to live short.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+final class SealedRequests {
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SealedRequests.class);
+    /**
+     * The type of the key in the {@link SecretService}
+     */
+    static final String KEY_TYPE = "sealedRequest";
+    private static final byte VERSION = 1;
+    private static final int JTI_LENGTH = 16;
+    private static final int HEADER_LENGTH = 1 + JTI_LENGTH + Long.BYTES;
+    private static final int MAX_REMEMBERED = 10_000;
+    private static final ThreadLocal<SecureRandom> RANDOMS = ThreadLocal.withInitial(SecureRandom::new);
+    private static final ReplayCache USED = new ReplayCache(MAX_REMEMBERED);
+
+    /**
+     * Constructor for SealedRequests
+     */
+    private SealedRequests() {
+        super();
+    }
+
+    /**
+     * Seals the request
+     * 
+     * @param request
+     *            the request
+     * @param timeToLive
+     *            how long the result can be unsealed
+     * @return the compact serialization of the JWE
+     * @throws IllegalStateException
+     *             if there is no symmetric key of type {@value #KEY_TYPE}
+     */
+    static String seal(AuthenticationRequest request, Duration timeToLive) {
+        byte[] jti = new byte[JTI_LENGTH];
+        RANDOMS.get().nextBytes(jti);
+        byte[] requestBytes = AuthenticationRequestCodec.encode(request);
+        // @formatter:off
+        byte[] plain = ByteBuffer.allocate(HEADER_LENGTH + requestBytes.length)
+                .put(VERSION)
+                .put(jti)
+                .putLong(Instant.now().plus(timeToLive).getEpochSecond())
+                .put(requestBytes)
+                .array();
+        // @formatter:on
+
+        OctetSequenceKey key = currentKey();
+        JWEHeader header = new JWEHeader.Builder(JWEAlgorithm.DIR, encryptionMethod(key))
+                .keyID(KeyMaterial.keyId(key))
+                .build();
+        JWEObject jwe = new JWEObject(header, new Payload(plain));
+        try {
+            jwe.encrypt(new DirectEncrypter(key));
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Check the configuration of " + KEY_TYPE, e);
+        }
+        return jwe.serialize();
+    }
+
+    /**
+     * Unseals a request that was sealed by {@link #seal(AuthenticationRequest, Duration)}
+     * 
+     * @param sealed
+     *            the compact serialization of the JWE
+     * @return the request
+     * @throws InputException
+     *             if the input was not sealed by us, has expired or was unsealed before
+     */
+    static AuthenticationRequest unseal(String sealed) {
+        byte[] plain;
+        try {
+            JWEObject jwe = JWEObject.parse(sealed);
+            OctetSequenceKey key = keyById(jwe.getHeader().getKeyID());
+            jwe.decrypt(new DirectDecrypter(key));
+            plain = jwe.getPayload().toBytes();
+        } catch (ParseException | JOSEException e) {
+            LOGGER.warn("Could not unseal request: {}", e.getMessage());
+            throw new InputException(ErrorCode.INVALID_REQUEST, "invalid sealed request");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(plain);
+        if (plain.length < HEADER_LENGTH || buffer.get() != VERSION) {
+            throw new InputException(ErrorCode.INVALID_REQUEST, "invalid sealed request");
+        }
+        byte[] jti = new byte[JTI_LENGTH];
+        buffer.get(jti);
+        long exp = buffer.getLong();
+        long now = Instant.now().getEpochSecond();
+        if (exp <= now) {
+            throw new InputException(ErrorCode.INVALID_REQUEST, "sealed request has expired");
+        }
+        if (!USED.add(Base64.getUrlEncoder().encodeToString(jti), exp, now)) {
+            throw new InputException(ErrorCode.INVALID_REQUEST, "sealed request was used before");
+        }
+        return AuthenticationRequestCodec.decode(Arrays.copyOfRange(plain, HEADER_LENGTH, plain.length));
+    }
+
+    private static OctetSequenceKey currentKey() {
+        // @formatter:off
+        JWK jwk = SecretService.getKeyMaterial(KEY_TYPE)
+                .findKey(KeyUsePredicate.ENC)
+                .orElseThrow(() -> new IllegalStateException("No key found for " + KEY_TYPE));
+        // @formatter:on
+        if (!(jwk instanceof OctetSequenceKey)) {
+            throw new IllegalStateException("The key for " + KEY_TYPE + " should be symmetric, not " + jwk.getKeyType());
+        }
+        return (OctetSequenceKey) jwk;
+    }
+
+    private static OctetSequenceKey keyById(String kid) {
+        JWK jwk = kid == null ? null : SecretService.getKeyMaterial(KEY_TYPE).findKey(kid).orElse(null);
+        if (!(jwk instanceof OctetSequenceKey)) {
+            throw new InputException(ErrorCode.INVALID_REQUEST, "invalid sealed request");
+        }
+        return (OctetSequenceKey) jwk;
+    }
+
+    private static EncryptionMethod encryptionMethod(OctetSequenceKey key) {
+        switch (key.size()) {
+        case 128:
+            return EncryptionMethod.A128GCM;
+        case 192:
+            return EncryptionMethod.A192GCM;
+        case 256:
+            return EncryptionMethod.A256GCM;
+        default:
+            throw new IllegalStateException("The key for " + KEY_TYPE + " should be 128, 192 or 256 bits");
+        }
+    }
+
+    /**
+     * Remembers the ids of the requests that were unsealed until they expire. As all requests have more or less the
+     * same time to live, the oldest entry is the first to expire. An id that did not expire is never forgotten, as the
+     * request could then be replayed: when the cache is full of those, no more requests are unsealed until some
+     * expire.
+     */
+    static final class ReplayCache {
+        private final int maxSize;
+        private final Map<String, Long> expiryById = new LinkedHashMap<>();
+
+        ReplayCache(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * Adds the id, unless it is already known
+         * 
+         * @param id
+         *            the id
+         * @param exp
+         *            expiry of the id in epoch seconds
+         * @param now
+         *            the current time in epoch seconds
+         * @return true if it was added, false if the id was seen before
+         * @throws InputException
+         *             if the cache is full of ids that did not expire
+         */
+        synchronized boolean add(String id, long exp, long now) {
+            if (expiryById.containsKey(id)) {
+                return false;
+            }
+            // oldest first, so we can stop at the first one that has not expired
+            Iterator<Long> it = expiryById.values().iterator();
+            while (it.hasNext() && it.next() <= now) {
+                it.remove();
+            }
+            if (expiryById.size() >= maxSize) {
+                LOGGER.warn("Too many sealed requests in flight, refusing to unseal another one");
+                throw new InputException(ErrorCode.TEMPORARILY_UNAVAILABLE, "too many requests in flight");
+            }
+            expiryById.put(id, exp);
+            return true;
+        }
+
+        synchronized int size() {
+            return expiryById.size();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.api;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Walks over the space delimited parts of a parameter value (scope, response_type, prompt, ui_locales, acr_values)
+ * without regular expressions or streams. Like {@code value.split(" ")}, but without the array and its list: two
+ * spaces in a row give an empty part, which the callers report as invalid. A value without spaces is given back as
+ * is.
+ * <p>
+ * Also holds the character table for scope tokens.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+final class SpaceDelimited {
+    /**
+     * Characters allowed in a scope token: %x21 / %x23-5B / %x5D-7E (RFC 6749, Appendix A.4)
+     */
+    private static final boolean[] SCOPE_CHARS = new boolean[128];
+
+    static {
+        for (char c = 0x21; c <= 0x7e; c++) {
+            SCOPE_CHARS[c] = c != 0x22 && c != 0x5c;
+        }
+    }
+
+    private final String value;
+    private int start = 0;
+
+    /**
+     * Constructor for SpaceDelimited
+     * 
+     * @param value
+     *            a trimmed, non empty value
+     */
+    SpaceDelimited(String value) {
+        super();
+        this.value = value;
+    }
+
+    /**
+     * @return whether there is another part
+     */
+    boolean hasNext() {
+        return start <= value.length();
+    }
+
+    /**
+     * @return the next part
+     */
+    String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int end = value.indexOf(' ', start);
+        if (end < 0) {
+            end = value.length();
+        }
+        String result = start == 0 && end == value.length() ? value : value.substring(start, end);
+        start = end + 1;
+        return result;
+    }
+
+    /**
+     * @param token
+     *            a part of the scope parameter
+     * @return true iff the token is not empty and only has characters that are allowed in a scope token
+     */
+    static boolean isScopeToken(String token) {
+        int length = token.length();
+        if (length == 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = token.charAt(i);
+            if (c >= SCOPE_CHARS.length || !SCOPE_CHARS[c]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -19,6 +19,10 @@
 
 package nl.qiy.oic.op.api.param;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonValue;
 
@@ -26,13 +30,24 @@ import nl.qiy.oic.op.api.ErrorCode;
 import nl.qiy.oic.op.api.InputException;
 
 /**
- * Values defined by the OAuth spec for the parameter display
+ * Values defined by the OAuth spec for the parameter display. New values must be added at the end, the
+ * ordinal is stored by the AuthenticationRequestCodec
  *
  * @author Friso Vrolijken
  * @since 25 apr. 2016
  */
 public enum Display {
     PAGE("page"), POPUP("popup"), TOUCH("touch"), WAP("wap");
+    private static final Map<String, Display> BY_TYPE;
+
+    static {
+        Map<String, Display> byType = new HashMap<>();
+        for (Display value : values()) {
+            byType.put(value.type, value);
+        }
+        BY_TYPE = Collections.unmodifiableMap(byType);
+    }
+
     private final String type;
 
     private Display(String type) {
@@ -54,12 +69,10 @@ public enum Display {
             return Display.PAGE;
         }
         // else
-        for (Display value : values()) {
-            if (value.type.equals(input)) {
-                return value;
-            }
+        Display result = BY_TYPE.get(input);
+        if (result != null) {
+            return result;
         }
-
         throw new InputException(ErrorCode.INVALID_REQUEST, "%s is not a valid value for display", input);
     }
 
@@ -19,6 +19,10 @@
 
 package nl.qiy.oic.op.api.param;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonValue;
 
@@ -26,13 +30,24 @@ import nl.qiy.oic.op.api.ErrorCode;
 import nl.qiy.oic.op.api.InputException;
 
 /**
- * Values defined by the OAuth spec for the parameter prompt
+ * Values defined by the OAuth spec for the parameter prompt. New values must be added at the end, the
+ * ordinal is stored by the AuthenticationRequestCodec
  *
  * @author Friso Vrolijken
  * @since 25 apr. 2016
  */
 public enum Prompt {
     NONE("none"), LOGIN("login"), CONSENT("consent"), SELECT_ACCOUNT("select_account");
+    private static final Map<String, Prompt> BY_TYPE;
+
+    static {
+        Map<String, Prompt> byType = new HashMap<>();
+        for (Prompt value : values()) {
+            byType.put(value.type, value);
+        }
+        BY_TYPE = Collections.unmodifiableMap(byType);
+    }
+
     private final String type;
 
     private Prompt(String type) {
@@ -50,12 +65,10 @@ public enum Prompt {
      */
     @JsonCreator
     public static Prompt get(String input) {
-        for (Prompt value : values()) {
-            if (value.type.equals(input)) {
-                return value;
-            }
+        Prompt result = BY_TYPE.get(input);
+        if (result != null) {
+            return result;
         }
-
         throw new InputException(ErrorCode.INVALID_REQUEST, "%s is not a valid value for prompt", input);
     }
 
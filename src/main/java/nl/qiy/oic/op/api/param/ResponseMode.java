@@ -19,6 +19,10 @@
 
 package nl.qiy.oic.op.api.param;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonValue;
 
@@ -26,7 +30,8 @@ import nl.qiy.oic.op.api.ErrorCode;
 import nl.qiy.oic.op.api.InputException;
 
 /**
- * Values defined by the OAuth spec for the parameter response_mode
+ * Values defined by the OAuth spec for the parameter response_mode. New values must be added at the end, the
+ * ordinal is stored by the AuthenticationRequestCodec
  *
  * @author Friso Vrolijken
  * @since 20 mei 2016
@@ -34,6 +39,16 @@ import nl.qiy.oic.op.api.InputException;
 public enum ResponseMode {
     QUERY("query"), FRAGMENT("fragment"), FORM_POST("form_post");
 
+    private static final Map<String, ResponseMode> BY_TYPE;
+
+    static {
+        Map<String, ResponseMode> byType = new HashMap<>();
+        for (ResponseMode value : values()) {
+            byType.put(value.type, value);
+        }
+        BY_TYPE = Collections.unmodifiableMap(byType);
+    }
+
     private final String type;
 
     private ResponseMode(String type) {
@@ -51,12 +66,10 @@ public enum ResponseMode {
      */
     @JsonCreator
     public static ResponseMode get(String input) {
-        for (ResponseMode value : values()) {
-            if (value.type.equals(input)) {
-                return value;
-            }
+        ResponseMode result = BY_TYPE.get(input);
+        if (result != null) {
+            return result;
         }
-
         throw new InputException(ErrorCode.INVALID_REQUEST, "%s is not a valid value for responseMode",
                 input);
     }
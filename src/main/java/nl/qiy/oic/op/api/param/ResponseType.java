@@ -19,6 +19,10 @@
 
 package nl.qiy.oic.op.api.param;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonValue;
 
@@ -26,13 +30,24 @@ import nl.qiy.oic.op.api.ErrorCode;
 import nl.qiy.oic.op.api.InputException;
 
 /**
- * Values defined by the OAuth spec for the parameter response_type
+ * Values defined by the OAuth spec for the parameter response_type. New values must be added at the end, the
+ * ordinal is stored by the AuthenticationRequestCodec
  *
  * @author Friso Vrolijken
  * @since 28 apr. 2016
  */
 public enum ResponseType {
     CODE("code"), TOKEN("token"), ID_TOKEN("id_token");
+    private static final Map<String, ResponseType> BY_TYPE;
+
+    static {
+        Map<String, ResponseType> byType = new HashMap<>();
+        for (ResponseType value : values()) {
+            byType.put(value.type, value);
+        }
+        BY_TYPE = Collections.unmodifiableMap(byType);
+    }
+
     private final String type;
 
     private ResponseType(String type) {
@@ -50,12 +65,10 @@ public enum ResponseType {
      */
     @JsonCreator
     public static ResponseType get(String input) {
-        for (ResponseType value : values()) {
-            if (value.type.equals(input)) {
-                return value;
-            }
+        ResponseType result = BY_TYPE.get(input);
+        if (result != null) {
+            return result;
         }
-
         throw new InputException(ErrorCode.UNSUPPORTED_RESPONSE_TYPE, "%s is not a valid value for responseType",
                 input);
     }
@@ -0,0 +1,354 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.JWEObject;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSObject;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.crypto.DirectDecrypter;
+import com.nimbusds.jose.crypto.DirectEncrypter;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import net.minidev.json.JSONObject;
+
+import nl.qiy.oic.op.service.ConfigurationService;
+import nl.qiy.oic.op.service.KeyMaterial;
+import nl.qiy.oic.op.service.SecretService;
+
+/**
+ * A self-contained access token: a JWT (typ at+jwt) with the issuer, subject, client, scope, expiry and id, followed by
+ * the user's claims that the scope asks for. The UserInfo endpoint can answer from the token itself, so these tokens
+ * are not stored and the store is only asked whether a token was revoked (by its id).
+ * <p>
+ * The token is signed with the signing key of type {@value #KEY_TYPE} from the {@link SecretService}. If that type
+ * also has a symmetric key for encryption, the signed token is encrypted with it (alg dir, AES GCM), so the claims
+ * can't be read by the client or anyone else that gets hold of the token. Keys that were rotated out are accepted
+ * during their overlap window.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+public final class AccessToken {
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccessToken.class);
+    /**
+     * The type of the keys in the {@link SecretService}
+     */
+    public static final String KEY_TYPE = "accessToken";
+    private static final JOSEObjectType TYPE = new JOSEObjectType("at+jwt");
+    /**
+     * The claims that describe the token rather than the user, they are not returned as user info
+     */
+    private static final Set<String> TOKEN_CLAIMS = Collections
+            .unmodifiableSet(new HashSet<>(Arrays.asList("iss", "client_id", "scope", "exp", "iat", "jti")));
+    private static final int JTI_LENGTH = 16;
+    private static final ThreadLocal<SecureRandom> RANDOMS = ThreadLocal.withInitial(SecureRandom::new);
+    private static final ConcurrentMap<String, Verifier> VERIFIERS = new ConcurrentHashMap<>();
+
+    private final JWTClaimsSet claims;
+
+    private AccessToken(JWTClaimsSet claims) {
+        super();
+        this.claims = claims;
+    }
+
+    /**
+     * Issues a token for the user
+     *
+     * @param user
+     *            the user the token is for
+     * @param clientId
+     *            the client the token is issued to
+     * @param scope
+     *            the values of the scope parameter of the request, which determine the user's claims in the token
+     * @param lifetime
+     *            how long the token is valid
+     * @return the compact serialization of the token
+     * @throws IllegalStateException
+     *             if there is no signing key of type {@value #KEY_TYPE}
+     */
+    public static String issue(OAuthUser user, String clientId, Collection<String> scope, Duration lifetime) {
+        Instant now = Instant.now();
+        byte[] jti = new byte[JTI_LENGTH];
+        RANDOMS.get().nextBytes(jti);
+
+        // the token's claims go first, so they win from user claims with the same name
+        // @formatter:off
+        byte[] payload = ClaimsWriter.get()
+                .claim("iss", ConfigurationService.current().getIssuer())
+                .claim("client_id", clientId)
+                .claim("scope", String.join(" ", scope))
+                .claim("exp", now.plus(lifetime).getEpochSecond())
+                .claim("iat", now.getEpochSecond())
+                .claim("jti", Base64.getUrlEncoder().withoutPadding().encodeToString(jti))
+                .claims(user.getClaims(), ClaimScope.bits(scope))
+                .claim("sub", user.getSubject())
+                .toByteArray();
+        // @formatter:on
+
+        KeyMaterial keys = Keys.ACCESS_TOKEN.get();
+        JWK jwk = keys.getKey(KeyUsePredicate.SIG);
+        JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.parse(jwk.getAlgorithm().getName()))
+                .keyID(jwk.getKeyID())
+                .type(TYPE)
+                .build();
+        JWSObject signed = new JWSObject(header, new Payload(payload));
+        try {
+            signed.sign(JWSSignerRegistry.get(KEY_TYPE, jwk));
+            OctetSequenceKey encryptionKey = encryptionKey(keys);
+            if (encryptionKey == null) {
+                return signed.serialize();
+            }
+            // else
+            JWEObject jwe = new JWEObject(new JWEHeader.Builder(JWEAlgorithm.DIR, encryptionMethod(encryptionKey))
+                    .keyID(KeyMaterial.keyId(encryptionKey))
+                    .contentType("JWT")
+                    .build(), new Payload(signed));
+            jwe.encrypt(new DirectEncrypter(encryptionKey));
+            return jwe.serialize();
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Check the configuration of " + KEY_TYPE, e);
+        }
+    }
+
+    /**
+     * @param token
+     *            a bearer token
+     * @return whether the token looks like one of these, rather than an opaque token that was stored
+     */
+    public static boolean isJWT(String token) {
+        return token.indexOf('.') >= 0;
+    }
+
+    /**
+     * Checks the signature, type, issuer and expiry of the token. Whether the token was revoked is not checked.
+     *
+     * @param token
+     *            a token that was made by {@link #issue(OAuthUser, String, Collection, Duration)}
+     * @return the token, or empty if it is not valid
+     */
+    public static Optional<AccessToken> verify(String token) {
+        try {
+            SignedJWT jwt;
+            if (isEncrypted(token)) {
+                JWEObject jwe = JWEObject.parse(token);
+                JWK key = findKey(jwe.getHeader().getKeyID());
+                if (!(key instanceof OctetSequenceKey)) {
+                    return Optional.empty();
+                }
+                jwe.decrypt(new DirectDecrypter((OctetSequenceKey) key));
+                jwt = jwe.getPayload().toSignedJWT();
+            } else {
+                jwt = SignedJWT.parse(token);
+            }
+            if (jwt == null || !TYPE.equals(jwt.getHeader().getType())) {
+                return Optional.empty();
+            }
+            JWK jwk = findKey(jwt.getHeader().getKeyID());
+            if (jwk == null || !KeyUsePredicate.SIG.test(jwk) || !jwt.verify(verifier(jwk))) {
+                return Optional.empty();
+            }
+            JWTClaimsSet claims = jwt.getJWTClaimsSet();
+            Date exp = claims.getExpirationTime();
+            if (exp == null || !exp.after(new Date())
+                    || !ConfigurationService.current().getIssuer().equals(claims.getIssuer())) {
+                return Optional.empty();
+            }
+            return Optional.of(new AccessToken(claims));
+        } catch (ParseException | JOSEException e) {
+            LOGGER.debug("Invalid access token: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return the id (jti) of this token, which is what a revocation refers to
+     */
+    public String getId() {
+        return claims.getJWTID();
+    }
+
+    /**
+     * @return the subject of the user this token is for
+     */
+    public String getSubject() {
+        return claims.getSubject();
+    }
+
+    /**
+     * @return the id of the client this token was issued to
+     */
+    public String getClientId() {
+        return (String) claims.getClaim("client_id");
+    }
+
+    /**
+     * @return the scope this token was issued for
+     */
+    public Set<String> getScope() {
+        Object scope = claims.getClaim("scope");
+        if (scope == null || scope.toString().isEmpty()) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(scope.toString().split(" "))));
+    }
+
+    /**
+     * @return when this token expires
+     */
+    public Instant getExpiry() {
+        return claims.getExpirationTime().toInstant();
+    }
+
+    /**
+     * Returns the user's claims in this token as JSON (UTF-8), as should be returned by the UserInfo endpoint. Like
+     * {@link IDToken#getUserInfo()} this always contains the sub claim.
+     *
+     * @return see description
+     */
+    public byte[] getUserInfo() {
+        JSONObject json = claims.toJSONObject();
+        json.keySet().removeAll(TOKEN_CLAIMS);
+        return json.toJSONString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static boolean isEncrypted(String token) {
+        // a JWS has three parts, a JWE five
+        int dots = 0;
+        for (int i = token.indexOf('.'); i >= 0; i = token.indexOf('.', i + 1)) {
+            dots++;
+        }
+        return dots == 4;
+    }
+
+    private static JWK findKey(String kid) {
+        return kid == null ? null : Keys.ACCESS_TOKEN.get().findKey(kid).orElse(null);
+    }
+
+    /**
+     * @return the first symmetric key of the current keys that is meant for encryption, or null if there is none
+     */
+    private static OctetSequenceKey encryptionKey(KeyMaterial keys) {
+        for (JWK jwk : keys.getCurrentSet().getKeys()) {
+            if (jwk instanceof OctetSequenceKey && jwk.getKeyUse() == KeyUse.ENCRYPTION) {
+                return (OctetSequenceKey) jwk;
+            }
+        }
+        return null;
+    }
+
+    private static EncryptionMethod encryptionMethod(OctetSequenceKey key) {
+        switch (key.size()) {
+        case 128:
+            return EncryptionMethod.A128GCM;
+        case 192:
+            return EncryptionMethod.A192GCM;
+        case 256:
+            return EncryptionMethod.A256GCM;
+        default:
+            throw new IllegalStateException("The encryption key for " + KEY_TYPE + " should be 128, 192 or 256 bits");
+        }
+    }
+
+    /**
+     * Returns the verifier for the key, made once per key. Verifiers can be shared between threads.
+     */
+    private static JWSVerifier verifier(JWK jwk) throws JOSEException {
+        String kid = KeyMaterial.keyId(jwk);
+        Verifier result = VERIFIERS.get(kid);
+        if (result == null || result.jwk != jwk) {
+            result = new Verifier(jwk, newVerifier(jwk));
+            VERIFIERS.put(kid, result);
+        }
+        return result.verifier;
+    }
+
+    private static JWSVerifier newVerifier(JWK jwk) throws JOSEException {
+        if (jwk instanceof RSAKey) {
+            return new RSASSAVerifier(((RSAKey) jwk).toRSAPublicKey());
+        }
+        if (jwk instanceof ECKey) {
+            return new ECDSAVerifier(((ECKey) jwk).toECPublicKey());
+        }
+        if (jwk instanceof OctetSequenceKey) {
+            return new MACVerifier(((OctetSequenceKey) jwk).toByteArray());
+        }
+        throw new JOSEException("Unsupported key type " + jwk.getKeyType());
+    }
+
+    /**
+     * A verifier with the key it was made for
+     */
+    private static final class Verifier {
+        private final JWK jwk;
+        private final JWSVerifier verifier;
+
+        Verifier(JWK jwk, JWSVerifier verifier) {
+            this.jwk = jwk;
+            this.verifier = verifier;
+        }
+    }
+
+    /**
+     * Lazy holder for the keys, so the SecretService is consulted when the first token is issued or verified
+     */
+    private static final class Keys {
+        static final Supplier<KeyMaterial> ACCESS_TOKEN = SecretService.keyMaterial(KEY_TYPE);
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.domain;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Maps claim objects (e.g. {@link StandardClaims}) to a map of claim name to value. The plan for a class is made once
+ * and kept in a {@link ClassValue}, so mapping needs no locking and no reflection. The fields of
+ * {@link StandardClaims} and {@link AddressClaim} have hand-written accessors; fields that a subclass adds are read
+ * through a {@link MethodHandle}.
+ * <p>
+ * As before, only the public final fields are mapped. Fields of type String, Boolean and Long are copied, fields of
+ * type {@link AddressClaim} are mapped as a nested object and others are ignored. The name of a claim is the value of
+ * its {@link JsonProperty} annotation, or the field name if there is none.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+final class ClaimMapping {
+    private static final List<Class<?>> BASE_TYPES = Arrays.asList(String.class, Boolean.class, Long.class);
+    private static final List<Class<?>> COMPLEX_TYPES = Collections.singletonList(AddressClaim.class);
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<ClaimMapping> PLANS = new ClassValue<ClaimMapping>() {
+        @Override
+        protected ClaimMapping computeValue(Class<?> type) {
+            return new ClaimMapping(type);
+        }
+    };
+
+    private final List<ClaimAccessor> accessors;
+    /**
+     * The accessors to use per combination of {@link ClaimScope}s, indexed by the bit mask
+     */
+    private final ClaimAccessor[][] projections;
+
+    /**
+     * Constructor for ClaimMapping, builds the plan for the given class
+     * 
+     * @param type
+     *            the class to build the plan for
+     */
+    private ClaimMapping(Class<?> type) {
+        super();
+        Map<String, ClaimAccessor> byName = new TreeMap<>();
+        collect(type, byName);
+        this.accessors = Collections.unmodifiableList(new ArrayList<>(byName.values()));
+        this.projections = new ClaimAccessor[ClaimScope.ALL + 1][];
+        for (int bits = 0; bits <= ClaimScope.ALL; bits++) {
+            List<ClaimAccessor> projection = new ArrayList<>();
+            for (ClaimAccessor accessor : accessors) {
+                if (accessor.scope == null || (accessor.scope.bit() & bits) != 0) {
+                    projection.add(accessor);
+                }
+            }
+            projections[bits] = projection.toArray(new ClaimAccessor[projection.size()]);
+        }
+    }
+
+    /**
+     * Returns the plan for the given class
+     * 
+     * @param type
+     *            the class of the claims object
+     * @return see description
+     */
+    static ClaimMapping forClass(Class<?> type) {
+        return PLANS.get(type);
+    }
+
+    /**
+     * Maps the claims object to a map, leaving out the claims that have no value
+     * 
+     * @param mapMe
+     *            the claims object
+     * @return see description
+     */
+    static Map<String, Object> toMap(Object mapMe) {
+        return toMap(mapMe, ClaimScope.ALL);
+    }
+
+    /**
+     * Maps the claims that were asked for by the given scopes to a map, leaving out the claims that have no value
+     * 
+     * @param mapMe
+     *            the claims object
+     * @param scopes
+     *            bit mask of {@link ClaimScope}s
+     * @return see description
+     */
+    static Map<String, Object> toMap(Object mapMe, int scopes) {
+        return map(mapMe, forClass(mapMe.getClass()).getAccessors(scopes));
+    }
+
+    /**
+     * @return the accessors in this plan, ordered by claim name
+     */
+    List<ClaimAccessor> getAccessors() {
+        return accessors;
+    }
+
+    /**
+     * @param scopes
+     *            bit mask of {@link ClaimScope}s
+     * @return the accessors for the claims the scopes ask for, ordered by claim name. The array must not be changed.
+     */
+    ClaimAccessor[] getAccessors(int scopes) {
+        return projections[scopes & ClaimScope.ALL];
+    }
+
+    private static Map<String, Object> map(Object mapMe, ClaimAccessor[] projection) {
+        Map<String, Object> result = new HashMap<>();
+        for (ClaimAccessor accessor : projection) {
+            Object val = accessor.getter.apply(mapMe);
+            if (val != null) {
+                result.put(accessor.name, accessor.nested ? toMap(val) : val);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds the accessors for the given class and its superclasses to the map, fields of subclasses win
+     * 
+     * @param type
+     *            the class
+     * @param byName
+     *            the map to add to
+     */
+    private static void collect(Class<?> type, Map<String, ClaimAccessor> byName) {
+        if (type == null || type == Object.class) {
+            return;
+        }
+        // else
+        if (type == StandardClaims.class) {
+            standardClaims(byName);
+            return;
+        }
+        if (type == AddressClaim.class) {
+            addressClaim(byName);
+            return;
+        }
+        collect(type.getSuperclass(), byName);
+        for (Field field : type.getDeclaredFields()) {
+            if (isClaim(field)) {
+                String name = claimName(field);
+                byName.put(name, new ClaimAccessor(name, getter(field), COMPLEX_TYPES.contains(field.getType())));
+            }
+        }
+    }
+
+    /**
+     * Whether the field is mapped by this class, see the class description
+     * 
+     * @param field
+     *            the field
+     * @return see description
+     */
+    static boolean isClaim(Field field) {
+        int modifiers = field.getModifiers();
+        return Modifier.isFinal(modifiers) && Modifier.isPublic(modifiers) && !Modifier.isStatic(modifiers)
+                && (BASE_TYPES.contains(field.getType()) || COMPLEX_TYPES.contains(field.getType()));
+    }
+
+    /**
+     * @param field
+     *            the field
+     * @return the name of the claim for the field
+     */
+    static String claimName(Field field) {
+        JsonProperty annotation = field.getAnnotation(JsonProperty.class);
+        return annotation == null ? field.getName() : annotation.value();
+    }
+
+    private static Function<Object, Object> getter(Field field) {
+        try {
+            // the declaring class need not be public, the field is
+            field.setAccessible(true);
+            MethodHandle handle = MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE);
+            return o -> invoke(handle, o);
+        } catch (IllegalAccessException | SecurityException e) {
+            throw new IllegalStateException("Can't read claim " + field, e);
+        }
+    }
+
+    @SuppressWarnings("squid:S00112") // invokeExact throws Throwable
+    private static Object invoke(MethodHandle handle, Object target) {
+        try {
+            return handle.invokeExact(target);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // @formatter:off
+    private static void standardClaims(Map<String, ClaimAccessor> byName) {
+        add(byName, "sub", o -> ((StandardClaims) o).sub);
+        add(byName, "name", o -> ((StandardClaims) o).name);
+        add(byName, "given_name", o -> ((StandardClaims) o).givenName);
+        add(byName, "family_name", o -> ((StandardClaims) o).familyName);
+        add(byName, "middle_name", o -> ((StandardClaims) o).middleName);
+        add(byName, "nickname", o -> ((StandardClaims) o).nickname);
+        add(byName, "preferred_username", o -> ((StandardClaims) o).preferredUsername);
+        add(byName, "profile", o -> ((StandardClaims) o).profile);
+        add(byName, "picture", o -> ((StandardClaims) o).picture);
+        add(byName, "website", o -> ((StandardClaims) o).website);
+        add(byName, "email", o -> ((StandardClaims) o).email);
+        add(byName, "email_verified", o -> ((StandardClaims) o).emailVerified);
+        add(byName, "gender", o -> ((StandardClaims) o).gender);
+        add(byName, "birthdate", o -> ((StandardClaims) o).birthdate);
+        add(byName, "zoneinfo", o -> ((StandardClaims) o).zoneinfo);
+        add(byName, "locale", o -> ((StandardClaims) o).locale);
+        add(byName, "phone_number", o -> ((StandardClaims) o).phoneNumber);
+        add(byName, "phone_number_verified", o -> ((StandardClaims) o).phoneNumberVerified);
+        byName.put("address", new ClaimAccessor("address", o -> ((StandardClaims) o).address, true));
+        add(byName, "updated_at", o -> ((StandardClaims) o).updatedAt);
+    }
+
+    private static void addressClaim(Map<String, ClaimAccessor> byName) {
+        add(byName, "formatted", o -> ((AddressClaim) o).formatted);
+        add(byName, "street_address", o -> ((AddressClaim) o).streetAddress);
+        add(byName, "locality", o -> ((AddressClaim) o).locality);
+        add(byName, "region", o -> ((AddressClaim) o).region);
+        add(byName, "postal_code", o -> ((AddressClaim) o).postalCode);
+        add(byName, "country", o -> ((AddressClaim) o).country);
+    }
+    // @formatter:on
+
+    private static void add(Map<String, ClaimAccessor> byName, String name, Function<Object, Object> getter) {
+        byName.put(name, new ClaimAccessor(name, getter, false));
+    }
+
+    /**
+     * Reads a single claim from a claims object
+     */
+    static final class ClaimAccessor {
+        final String name;
+        final Function<Object, Object> getter;
+        /**
+         * whether the value is a claims object itself (e.g. the address)
+         */
+        final boolean nested;
+        /**
+         * the scope that asks for this claim, null if it is always returned
+         */
+        final ClaimScope scope;
+
+        ClaimAccessor(String name, Function<Object, Object> getter, boolean nested) {
+            this.name = name;
+            this.getter = getter;
+            this.nested = nested;
+            this.scope = ClaimScope.forClaim(name);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
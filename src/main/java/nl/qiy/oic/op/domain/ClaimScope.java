@@ -0,0 +1,118 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.domain;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The scope values that request a set of claims, as described in
+ * <a href="http://openid.net/specs/openid-connect-core-1_0.html#ScopeClaims">section 5.4 of the OpenID connect
+ * spec</a>. A combination of scopes is passed around as a bit mask, see {@link #bits(Collection)}.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+public enum ClaimScope {
+    // @formatter:off
+    PROFILE("profile", "name", "family_name", "given_name", "middle_name", "nickname", "preferred_username",
+            "profile", "picture", "website", "gender", "birthdate", "zoneinfo", "locale", "updated_at"), 
+    EMAIL("email", "email", "email_verified"), 
+    ADDRESS("address", "address"), 
+    PHONE("phone", "phone_number", "phone_number_verified");
+    // @formatter:on
+
+    /**
+     * The bits for all scopes
+     */
+    public static final int ALL = (1 << values().length) - 1;
+    private static final Map<String, ClaimScope> BY_CLAIM;
+
+    static {
+        Map<String, ClaimScope> byClaim = new HashMap<>();
+        for (ClaimScope scope : values()) {
+            scope.claims.forEach(claim -> byClaim.put(claim, scope));
+        }
+        BY_CLAIM = Collections.unmodifiableMap(byClaim);
+    }
+
+    private final String value;
+    private final Set<String> claims;
+
+    private ClaimScope(String value, String... claims) {
+        this.value = value;
+        this.claims = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(claims)));
+    }
+
+    /**
+     * @return the value as used in the scope parameter
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * @return the names of the claims this scope asks for
+     */
+    public Set<String> getClaims() {
+        return claims;
+    }
+
+    /**
+     * @return the bit for this scope
+     */
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Returns the bit mask for the claim scopes in the given scope parameter, other values (e.g. openid) are ignored
+     * 
+     * @param scope
+     *            the values of the scope parameter
+     * @return see description
+     */
+    public static int bits(Collection<String> scope) {
+        int result = 0;
+        for (ClaimScope claimScope : values()) {
+            if (scope.contains(claimScope.value)) {
+                result |= claimScope.bit();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the scope that asks for the given claim, or null if the claim is not part of any scope (e.g. sub or a
+     * claim that was added by a subclass of {@link StandardClaims}). Those claims are always returned.
+     * 
+     * @param claim
+     *            the name of the claim
+     * @return see description
+     */
+    public static ClaimScope forClaim(String claim) {
+        return BY_CLAIM.get(claim);
+    }
+}
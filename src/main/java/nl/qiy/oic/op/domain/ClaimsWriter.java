@@ -0,0 +1,258 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import nl.qiy.oic.op.domain.ClaimMapping.ClaimAccessor;
+
+/**
+ * Writes a JSON object with claims straight into a byte buffer, without building a map first. Every thread has its
+ * own writer (see {@link #get()}), so the buffer is reused from one token to the next and the only garbage per call is
+ * the resulting byte array.
+ * <p>
+ * A claim is written only once: the first value given for a name wins, later calls for the same name are ignored.
+ * Values are Strings, Booleans, Numbers or claims objects as understood by {@link ClaimMapping}.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+final class ClaimsWriter {
+    /**
+     * Buffers that grew beyond this size are not kept for the next call
+     */
+    private static final int MAX_RETAINED = 16 * 1024;
+    private static final int INITIAL_SIZE = 1024;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final ThreadLocal<ClaimsWriter> WRITERS = ThreadLocal.withInitial(ClaimsWriter::new);
+
+    private byte[] buf = new byte[INITIAL_SIZE];
+    private int count;
+    private boolean first;
+    private final List<String> written = new ArrayList<>();
+
+    /**
+     * Constructor for ClaimsWriter
+     */
+    private ClaimsWriter() {
+        super();
+    }
+
+    /**
+     * Returns the writer for the current thread, ready to write a new object. The writer must not be handed to other
+     * threads, nor be kept after {@link #toByteArray()} was called.
+     * 
+     * @return see description
+     */
+    static ClaimsWriter get() {
+        ClaimsWriter result = WRITERS.get();
+        result.reset();
+        return result;
+    }
+
+    private void reset() {
+        if (buf.length > MAX_RETAINED) {
+            buf = new byte[INITIAL_SIZE];
+        }
+        count = 0;
+        first = true;
+        written.clear();
+        write('{');
+    }
+
+    /**
+     * Writes the claims of the given object (see {@link ClaimMapping}), leaving out the claims that have no value
+     * 
+     * @param claims
+     *            the claims object, may be null
+     * @return this
+     */
+    ClaimsWriter claims(Object claims) {
+        return claims(claims, ClaimScope.ALL);
+    }
+
+    /**
+     * Writes the claims of the given object that were asked for by the given scopes (see {@link ClaimMapping}),
+     * leaving out the claims that have no value
+     * 
+     * @param claims
+     *            the claims object, may be null
+     * @param scopes
+     *            bit mask of {@link ClaimScope}s
+     * @return this
+     */
+    ClaimsWriter claims(Object claims, int scopes) {
+        if (claims != null) {
+            for (ClaimAccessor accessor : ClaimMapping.forClass(claims.getClass()).getAccessors(scopes)) {
+                claim(accessor.name, accessor.getter.apply(claims));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Writes a single claim, unless the value is null or a claim with the same name was written before
+     * 
+     * @param name
+     *            name of the claim
+     * @param value
+     *            String, Boolean, Number or claims object
+     * @return this
+     */
+    ClaimsWriter claim(String name, Object value) {
+        if (value == null || written.contains(name)) {
+            return this;
+        }
+        written.add(name);
+        name(name);
+        value(value);
+        return this;
+    }
+
+    /**
+     * Closes the object and returns the JSON as UTF-8
+     * 
+     * @return see description
+     */
+    byte[] toByteArray() {
+        write('}');
+        return Arrays.copyOf(buf, count);
+    }
+
+    private void name(String name) {
+        if (!first) {
+            write(',');
+        }
+        first = false;
+        string(name);
+        write(':');
+    }
+
+    private void value(Object value) {
+        if (value instanceof String) {
+            string((String) value);
+        } else if (value instanceof Number || value instanceof Boolean) {
+            ascii(value.toString());
+        } else {
+            // a nested claims object, e.g. the address
+            boolean outerFirst = first;
+            first = true;
+            write('{');
+            for (ClaimAccessor accessor : ClaimMapping.forClass(value.getClass()).getAccessors()) {
+                Object val = accessor.getter.apply(value);
+                if (val != null) {
+                    name(accessor.name);
+                    value(val);
+                }
+            }
+            write('}');
+            first = outerFirst;
+        }
+    }
+
+    private void ascii(String s) {
+        ensure(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            buf[count++] = (byte) s.charAt(i);
+        }
+    }
+
+    /**
+     * Writes a JSON string, escaped as per RFC 7159 and encoded as UTF-8
+     * 
+     * @param s
+     *            the string
+     */
+    private void string(String s) {
+        // worst case: 6 bytes for an escaped control character, 3 bytes for other chars; plus the quotes
+        ensure(s.length() * 6 + 2);
+        buf[count++] = '"';
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                buf[count++] = '\\';
+                buf[count++] = (byte) c;
+            } else if (c < 0x20) {
+                escapeControl(c);
+            } else if (c < 0x80) {
+                buf[count++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[count++] = (byte) (0xc0 | (c >> 6));
+                buf[count++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf[count++] = (byte) (0xf0 | (cp >> 18));
+                buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                buf[count++] = (byte) (0x80 | (cp & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate, can't be encoded. Same as what String.getBytes does
+                buf[count++] = '?';
+            } else {
+                buf[count++] = (byte) (0xe0 | (c >> 12));
+                buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buf[count++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        buf[count++] = '"';
+    }
+
+    private void escapeControl(char c) {
+        buf[count++] = '\\';
+        switch (c) {
+        case '\n':
+            buf[count++] = 'n';
+            break;
+        case '\r':
+            buf[count++] = 'r';
+            break;
+        case '\t':
+            buf[count++] = 't';
+            break;
+        case '\b':
+            buf[count++] = 'b';
+            break;
+        case '\f':
+            buf[count++] = 'f';
+            break;
+        default:
+            buf[count++] = 'u';
+            buf[count++] = '0';
+            buf[count++] = '0';
+            buf[count++] = HEX[c >> 4];
+            buf[count++] = HEX[c & 0xf];
+        }
+    }
+
+    private void write(char c) {
+        ensure(1);
+        buf[count++] = (byte) c;
+    }
+
+    private void ensure(int extra) {
+        if (count + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + extra));
+        }
+    }
+}
@@ -19,8 +19,6 @@
 package nl.qiy.oic.op.domain;
 
 import java.io.Serializable;
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -29,37 +27,22 @@ import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.Date;
-import java.util.EnumMap;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
-import java.util.TreeMap;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.JWSHeader;
-import com.nimbusds.jose.JWSSigner;
-import com.nimbusds.jose.crypto.ECDSASigner;
-import com.nimbusds.jose.crypto.MACSigner;
-import com.nimbusds.jose.crypto.RSASSASigner;
-import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.JWSObject;
+import com.nimbusds.jose.Payload;
 import com.nimbusds.jose.jwk.JWK;
-import com.nimbusds.jose.jwk.OctetSequenceKey;
-import com.nimbusds.jose.jwk.RSAKey;
-import com.nimbusds.jwt.JWTClaimsSet;
-import com.nimbusds.jwt.JWTClaimsSet.Builder;
-import com.nimbusds.jwt.SignedJWT;
 
 import nl.qiy.oic.op.service.ConfigurationService;
+import nl.qiy.oic.op.service.KeyMaterial;
 import nl.qiy.oic.op.service.SecretService;
-import nl.qiy.oic.op.service.spi.Configuration;
 
 /**
  * The object that can build the JSON representation of a user
@@ -76,21 +59,44 @@ public class IDToken implements Serializable {
     private final OAuthUser user;
     private final Date now = new Date();
     private final Date exp = Date.from(now.toInstant().plus(Duration.ofMinutes(10)));
-    private static Map<Class<?>, Collection<Entry<String, Field>>> baseTypeFields = new HashMap<>();
-    private static Map<Class<?>, Collection<Entry<String, Field>>> complexTypeFields = new HashMap<>();
-    private static JWSSigner jwsSigner;
-    private static Map<KeyUsePredicate, JWK> keysByUse = new EnumMap<>(KeyUsePredicate.class);
     private String accessToken = null;
+    /**
+     * The {@link ClaimScope}s that were <em>not</em> asked for. Stored inverted, so tokens that were serialized before
+     * this field existed still return all claims.
+     */
+    private final int excludedScopes;
 
     /**
-     * Constructor for IDToken
+     * Constructor for IDToken that returns all the user's claims
      * 
      * @param userImpl
      *            user that this token is for
      */
     public IDToken(OAuthUser userImpl) {
+        this(userImpl, ClaimScope.ALL);
+    }
+
+    /**
+     * Constructor for IDToken that only returns the user's claims that were asked for by the scope parameter, see
+     * {@link ClaimScope}
+     * 
+     * @param userImpl
+     *            user that this token is for
+     * @param scope
+     *            the values of the scope parameter of the request
+     */
+    public IDToken(OAuthUser userImpl, Collection<String> scope) {
+        this(userImpl, ClaimScope.bits(scope));
+    }
+
+    private IDToken(OAuthUser userImpl, int scopes) {
         super();
         this.user = userImpl;
+        this.excludedScopes = ~scopes & ClaimScope.ALL;
+    }
+
+    private int getScopes() {
+        return ~excludedScopes & ClaimScope.ALL;
     }
 
     /**
@@ -104,31 +110,28 @@ public class IDToken implements Serializable {
      * @return see description
      */
     public String buildStringRepresentation(String aud, String nonce) {
+        // one read, so at_hash and the signature always use the same version of the keys
+        JWK jwk = Keys.ID_TOKEN.get().getKey(KeyUsePredicate.SIG);
+
+        // The user's claims go first, so they win from the registered claims (e.g. sub), except for the nonce
         // @formatter:off
-        Builder csBuilder = new JWTClaimsSet.Builder()
-                .issuer(ConfigurationService.get(Configuration.ISS))
-                .subject(user.getSubject())
-                .audience(aud)
-                .expirationTime(exp)
-                .issueTime(now);
+        ClaimsWriter writer = ClaimsWriter.get()
+                .claim("nonce", nonce)
+                .claims(user.getClaims(), getScopes())
+                .claim("iss", ConfigurationService.current().getIssuer())
+                .claim("sub", user.getSubject())
+                .claim("aud", aud)
+                .claim("exp", exp.getTime() / 1000)
+                .claim("iat", now.getTime() / 1000);
         // @formatter:on
 
         if (accessToken != null) {
-            csBuilder.claim("at_hash", calcATHash());
+            writer.claim("at_hash", calcATHash(jwk));
         }
 
         // optional claims
         if (user.getLoginTime() != null) {
-            csBuilder.claim("auth_time", user.getLoginTime().getEpochSecond());
-        }
-
-        if (user.getClaims() != null) {
-            Map<String, Object> claims = toMap(user.getClaims());
-            claims.forEach(csBuilder::claim);
-        }
-
-        if (nonce != null) {
-            csBuilder.claim("nonce", nonce);
+            writer.claim("auth_time", user.getLoginTime().getEpochSecond());
         }
 
         // currently (?) unsupported claims
@@ -136,17 +139,15 @@ public class IDToken implements Serializable {
         // - amr
         // - azp
 
-        JWTClaimsSet idToken = csBuilder.build();
-        SignedJWT signedIdToken = signToken(idToken);
+        JWSObject signedIdToken = signToken(writer.toByteArray(), jwk);
 
         // TODO [FV 20160520] encryption is left for another day
 
         return signedIdToken.serialize();
     }
 
-    private String calcATHash() {
+    private String calcATHash(JWK jwk) {
         try {
-            JWK jwk = getJWKFor(KeyUsePredicate.SIG, "idToken");
             String alg = "SHA-" + jwk.getAlgorithm().getName().substring(2);
             MessageDigest md = MessageDigest.getInstance(alg);
             md.update(accessToken.getBytes(StandardCharsets.US_ASCII));
@@ -159,87 +160,22 @@ public class IDToken implements Serializable {
         }
     }
 
-    private static Map<String, Object> toMap(Object mapMe) {
-        try {
-            Map<String, Object> result = new HashMap<>();
-            for (Entry<String, Field> entry : getBaseTypeFields(mapMe.getClass())) {
-                Object val = entry.getValue().get(mapMe);
-                if (val != null) {
-                    result.put(entry.getKey(), val);
-                }
-            }
-            for (Entry<String, Field> entry : getComplexTypeFields(mapMe.getClass())) {
-                Object val = entry.getValue().get(mapMe);
-                if (val != null) {
-                    result.put(entry.getKey(), toMap(val));
-                }
-            }
-            return result;
-        } catch (IllegalAccessException e) {
-            LOGGER.warn("Error while doing toMap", e);
-            throw new IllegalStateException(e);
-        }
-    }
-
-    private static Collection<Entry<String, Field>> getComplexTypeFields(Class<? extends Object> class1) {
-        Collection<Entry<String, Field>> result = complexTypeFields.get(class1);
-        if (result == null) {
-            Set<Class<?>> keepers = new HashSet<>(); // should really use the inverse filter from getBaseTypeFields
-            keepers.add(AddressClaim.class);
-            // @formatter:off
-            result = getFields(class1)
-                .stream()
-                .filter(e -> keepers.contains(e.getValue().getType()))
-                .collect(Collectors.toList());// @formatter:on
-            complexTypeFields.put(class1, result);
-        }
-        return result;
-    }
-
-    private static Collection<Entry<String, Field>> getBaseTypeFields(Class<? extends Object> class1) {
-        Collection<Entry<String, Field>> result = baseTypeFields.get(class1);
-        if (result == null) {
-            Set<Class<?>> keepers = new HashSet<>(); // could do more, but these are all that are currently used
-            keepers.add(String.class);
-            keepers.add(Boolean.class);
-            keepers.add(Long.class);
-            // @formatter:off
-            result = getFields(class1)
-                .stream()
-                .filter(e -> keepers.contains(e.getValue().getType()))
-                .collect(Collectors.toList());// @formatter:on
-            baseTypeFields.put(class1, result);
-        }
-        return result;
-    }
-
-    private static Collection<Entry<String, Field>> getFields(Class<?> klazz) {
-        Field[] declairedFields = klazz.getDeclaredFields();
-        Map<String, Field> result = new TreeMap<>();
-        for (Field field : declairedFields) {
-            if (Modifier.isFinal(field.getModifiers()) && Modifier.isPublic(field.getModifiers())) {
-                JsonProperty annotation = field.getAnnotation(JsonProperty.class);
-                String name = annotation == null ? field.getName() : annotation.value();
-                result.put(name, field);
-            }
-        }
-        return result.entrySet();
-    }
-
     /**
-     * Signs a JWT token with the first approprate key it finds
+     * Signs a JWT token with the given key. The key id is put in the header, so relying parties can pick the right key
+     * while an old and a new key are both published.
      * 
      * @param idToken
-     *            claims set to sign
+     *            the claims to sign, as JSON
+     * @param jwk
+     *            the current signing key
      * @return see description
      */
-    private static SignedJWT signToken(JWTClaimsSet idToken) {
+    private static JWSObject signToken(byte[] idToken, JWK jwk) {
         try {
-            JWK jwk = getJWKFor(KeyUsePredicate.SIG, "idToken");
             JWSAlgorithm alg = JWSAlgorithm.parse(jwk.getAlgorithm().getName());
-            JWSHeader header = new JWSHeader(alg);
-            SignedJWT signedClaims = new SignedJWT(header, idToken);
-            signedClaims.sign(getJWSSigner("idToken"));
+            JWSHeader header = new JWSHeader.Builder(alg).keyID(jwk.getKeyID()).build();
+            JWSObject signedClaims = new JWSObject(header, new Payload(idToken));
+            signedClaims.sign(JWSSignerRegistry.get("idToken", jwk));
             return signedClaims;
         } catch (JOSEException e) {
             // TODO [FV 20160520] ... this can probably be handled better
@@ -248,54 +184,11 @@ public class IDToken implements Serializable {
     }
 
     /**
-     * @param type
-     *            either "idToken" or "userInfo"
-     * @return see description
+     * Lazy holder for the idToken keys, so the SecretService is consulted when the first token is signed and not on
+     * every signing call. After a rotation the supplier gives the new keys.
      */
-    private static JWSSigner getJWSSigner(String type) {
-        try {
-            if (jwsSigner == null) {
-                JWK jwk = getJWKFor(KeyUsePredicate.SIG, type);
-                JWSAlgorithm alg = JWSAlgorithm.parse(jwk.getAlgorithm().getName());
-                if (JWSAlgorithm.Family.RSA.contains(alg)) {
-                    jwsSigner = new RSASSASigner((RSAKey) jwk);
-                } else if (JWSAlgorithm.Family.EC.contains(alg)) {
-                    // NB: untested! Might not even work
-                    jwsSigner = new ECDSASigner((ECKey) jwk);
-                } else if (JWSAlgorithm.Family.HMAC_SHA.contains(alg)) {
-                    // NB: untested! Might not even work
-                    jwsSigner = new MACSigner(((OctetSequenceKey) jwk).toByteArray());
-                }
-            }
-            return jwsSigner;
-        } catch (JOSEException e) {
-            throw new IllegalStateException("Check the configuration of JWS", e);
-        }
-    }
-
-    /**
-     * returns the key from {@link SecretService#getJWKSet(String)} with the appropriate use
-     * 
-     * @param keyUse
-     *            whether the key is used for signing or encryption
-     * @param type
-     *            either "idToken", "requestObject" or "userInfo"
-     * @return see description
-     */
-    private static JWK getJWKFor(KeyUsePredicate keyUse, String type) {
-        JWK result = keysByUse.get(keyUse);
-        if (result == null) {
-            // @formatter:off
-            result = SecretService.getJWKSet(type)
-                    .getKeys()
-                    .stream()
-                    .filter(keyUse)
-                    .findFirst()
-                    .orElseThrow(IllegalStateException::new);
-            // @formatter:on
-            keysByUse.put(keyUse, result);
-        }
-        return result;
+    private static final class Keys {
+        static final Supplier<KeyMaterial> ID_TOKEN = SecretService.keyMaterial("idToken");
     }
 
     /**
@@ -309,11 +202,27 @@ public class IDToken implements Serializable {
     }
 
     /**
-     * returns the user's claims
+     * returns the user's claims that were asked for
      * 
      * @return see description
+     * @see #getUserInfo()
      */
     public Map<String, Object> getStandardClaims() {
-        return toMap(user.getClaims());
+        return ClaimMapping.toMap(user.getClaims(), getScopes());
+    }
+
+    /**
+     * Returns the user's claims that were asked for as JSON (UTF-8), as should be returned by the UserInfo endpoint.
+     * Contrary to {@link #getStandardClaims()} this always contains the sub claim.
+     * 
+     * @return see description
+     */
+    public byte[] getUserInfo() {
+        // @formatter:off
+        return ClaimsWriter.get()
+                .claims(user.getClaims(), getScopes())
+                .claim("sub", user.getSubject())
+                .toByteArray();
+        // @formatter:on
     }
 }
@@ -0,0 +1,192 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.domain;
+
+import java.security.PrivateKey;
+import java.security.interfaces.ECPrivateKey;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.RSAKey;
+
+import nl.qiy.oic.op.service.KeyMaterial;
+import nl.qiy.oic.op.service.SecretService;
+
+/**
+ * Keeps the {@link JWSSigner}s, keyed by type (e.g. "idToken") and key id. The expensive part, turning the JWK into
+ * key material, is done once per key. Every thread then gets its own signer on top of that key material, so signing
+ * on many request threads does not contend on a shared instance.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+final class JWSSignerRegistry {
+    private static final ConcurrentMap<SignerKey, ThreadLocal<JWSSigner>> SIGNERS = new ConcurrentHashMap<>();
+
+    static {
+        SecretService.addRotationListener(JWSSignerRegistry::rotated);
+    }
+
+    /**
+     * Constructor for JWSSignerRegistry
+     */
+    private JWSSignerRegistry() {
+        super();
+    }
+
+    /**
+     * Returns a signer for the given key that may only be used by the calling thread
+     * 
+     * @param type
+     *            either "idToken" or "userInfo"
+     * @param jwk
+     *            the (private) key to sign with
+     * @return see description
+     * @throws IllegalStateException
+     *             if no signer can be made for the key
+     */
+    static JWSSigner get(String type, JWK jwk) {
+        SignerKey key = new SignerKey(type, KeyMaterial.keyId(jwk));
+        // get before computeIfAbsent, as the latter always locks the bin on Java 8
+        ThreadLocal<JWSSigner> perThread = SIGNERS.get(key);
+        if (perThread == null) {
+            perThread = SIGNERS.computeIfAbsent(key, k -> ThreadLocal.withInitial(signerFactory(jwk)));
+        }
+        return perThread.get();
+    }
+
+    /**
+     * Forgets the signer for a key that is no longer used, e.g. after the key was rotated
+     * 
+     * @param type
+     *            either "idToken" or "userInfo"
+     * @param jwk
+     *            the key that was used to get the signer
+     */
+    static void remove(String type, JWK jwk) {
+        SIGNERS.remove(new SignerKey(type, KeyMaterial.keyId(jwk)));
+    }
+
+    /**
+     * Drops the signer of a signing key that was replaced and prepares the key material for the new one, so the first
+     * request after a rotation does not pay for the conversion
+     * 
+     * @param old
+     *            the keys before the rotation
+     * @param current
+     *            the keys after the rotation
+     */
+    static void rotated(KeyMaterial old, KeyMaterial current) {
+        Optional<JWK> oldKey = old.findKey(KeyUsePredicate.SIG);
+        Optional<JWK> newKey = current.findKey(KeyUsePredicate.SIG);
+        if (oldKey.isPresent() && !oldKey.map(KeyMaterial::keyId).equals(newKey.map(KeyMaterial::keyId))) {
+            remove(old.getType(), oldKey.get());
+        }
+        newKey.ifPresent(jwk -> get(current.getType(), jwk));
+    }
+
+    /**
+     * Converts the JWK to key material (once) and returns a factory that creates signers on top of that
+     * 
+     * @param jwk
+     *            the key
+     * @return see description
+     */
+    private static Supplier<JWSSigner> signerFactory(JWK jwk) {
+        try {
+            JWSAlgorithm alg = JWSAlgorithm.parse(jwk.getAlgorithm().getName());
+            if (JWSAlgorithm.Family.RSA.contains(alg)) {
+                PrivateKey privateKey = ((RSAKey) jwk).toPrivateKey();
+                return () -> new RSASSASigner(privateKey);
+            }
+            if (JWSAlgorithm.Family.EC.contains(alg)) {
+                // NB: untested! Might not even work
+                ECPrivateKey privateKey = ((ECKey) jwk).toECPrivateKey();
+                return () -> unchecked(() -> new ECDSASigner(privateKey));
+            }
+            if (JWSAlgorithm.Family.HMAC_SHA.contains(alg)) {
+                // NB: untested! Might not even work
+                byte[] secret = ((OctetSequenceKey) jwk).toByteArray();
+                return () -> unchecked(() -> new MACSigner(secret));
+            }
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Check the configuration of JWS", e);
+        }
+        throw new IllegalStateException("Check the configuration of JWS, unsupported algorithm " + jwk.getAlgorithm());
+    }
+
+    private static JWSSigner unchecked(SignerSupplier supplier) {
+        try {
+            return supplier.get();
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Check the configuration of JWS", e);
+        }
+    }
+
+    /**
+     * Constructors of some signers throw a checked exception
+     */
+    @FunctionalInterface
+    private interface SignerSupplier {
+        JWSSigner get() throws JOSEException;
+    }
+
+    /**
+     * Composite key for the registry
+     */
+    private static final class SignerKey {
+        private final String type;
+        private final String kid;
+
+        SignerKey(String type, String kid) {
+            this.type = type;
+            this.kid = kid;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + kid.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof SignerKey)) {
+                return false;
+            }
+            SignerKey other = (SignerKey) obj;
+            return Objects.equals(type, other.type) && Objects.equals(kid, other.kid);
+        }
+    }
+}
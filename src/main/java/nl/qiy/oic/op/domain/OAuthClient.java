@@ -31,7 +31,9 @@ import java.net.URI;
 public interface OAuthClient extends Serializable {
 
     /**
-     * Per spec we should check if the redirectURI belongs to the given client
+     * Per spec we should check if the redirectURI belongs to the given client. This is called for every authentication
+     * request, implementations with more than a few redirect URIs can delegate to a {@link RedirectUriIndex} that is
+     * built when the client is loaded.
      * 
      * @param redirectUri
      *            a URI that should be known to belong to the client
@@ -0,0 +1,142 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.domain;
+
+import java.io.Serializable;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The redirect URIs of one client, for {@link OAuthClient#ownsURI(URI)}. A client builds it once, when it is loaded,
+ * after which checking a redirect URI is a hash lookup that allocates nothing.
+ * <p>
+ * URIs are compared as described in Section 6.2.1 of RFC 3986 (Simple String Comparison): a URI matches only if it is
+ * the same string as a registered one. Two rules can be added for clients that need them:
+ * <dl>
+ * <dt>{@link #withPrefix(String)}
+ * <dd>any URI that starts with the prefix matches. The prefix should at least end with the host and a slash, otherwise
+ * "https://example.com" would also match "https://example.com.evil.org"
+ * <dt>{@link #withLoopback()}
+ * <dd>an http URI on the loopback interface (127.0.0.1 or [::1]) matches a registered one on any port, as described in
+ * Section 7.3 of RFC 8252 for native apps
+ * </dl>
+ * Instances are immutable.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+public final class RedirectUriIndex implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Set<String> exact;
+    private final String[] prefixes;
+    /**
+     * The registered loopback URIs without their port, null if the loopback rule is off
+     */
+    private final Set<String> loopback;
+
+    private RedirectUriIndex(Set<String> exact, String[] prefixes, Set<String> loopback) {
+        super();
+        this.exact = exact;
+        this.prefixes = prefixes;
+        this.loopback = loopback;
+    }
+
+    /**
+     * @param redirectUris
+     *            the client's registered redirect URIs
+     * @return an index that only matches these URIs exactly
+     */
+    public static RedirectUriIndex of(Collection<String> redirectUris) {
+        return new RedirectUriIndex(Collections.unmodifiableSet(new HashSet<>(redirectUris)), new String[0], null);
+    }
+
+    /**
+     * @param prefix
+     *            the start of URIs that belong to the client, see the class description
+     * @return an index like this one that also matches every URI that starts with the prefix
+     */
+    public RedirectUriIndex withPrefix(String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            throw new IllegalArgumentException("A prefix must not be empty");
+        }
+        String[] result = Arrays.copyOf(prefixes, prefixes.length + 1);
+        result[prefixes.length] = prefix;
+        return new RedirectUriIndex(exact, result, loopback);
+    }
+
+    /**
+     * @return an index like this one that also matches registered loopback URIs on any port
+     */
+    public RedirectUriIndex withLoopback() {
+        Set<String> result = new HashSet<>();
+        for (String registered : exact) {
+            URI uri = URI.create(registered);
+            if (isLoopback(uri)) {
+                result.add(withoutPort(uri));
+            }
+        }
+        return new RedirectUriIndex(exact, prefixes, Collections.unmodifiableSet(result));
+    }
+
+    /**
+     * @param redirectUri
+     *            the redirect URI of a request
+     * @return true iff the URI is registered or matches one of the rules
+     */
+    public boolean matches(URI redirectUri) {
+        if (redirectUri == null) {
+            return false;
+        }
+        // URI keeps the string it was parsed from
+        String value = redirectUri.toString();
+        if (exact.contains(value)) {
+            return true;
+        }
+        for (String prefix : prefixes) {
+            if (value.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return loopback != null && redirectUri.getPort() != -1 && isLoopback(redirectUri)
+                && loopback.contains(withoutPort(redirectUri));
+    }
+
+    private static boolean isLoopback(URI uri) {
+        return "http".equals(uri.getScheme())
+                && ("127.0.0.1".equals(uri.getHost()) || "[::1]".equals(uri.getHost()));
+    }
+
+    private static String withoutPort(URI uri) {
+        String raw = uri.getRawPath() == null ? "" : uri.getRawPath();
+        String query = uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery();
+        return "http://" + uri.getHost() + raw + query;
+    }
+
+    @Override
+    public String toString() {
+        return "RedirectUriIndex [exact=" + exact + ", prefixes=" + Arrays.toString(prefixes) + ", loopback="
+                + (loopback != null) + "]";
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import nl.qiy.oic.op.domain.IDToken;
+import nl.qiy.oic.op.service.spi.UserSessionManager;
+
+/**
+ * An in-memory store for bearer tokens, for {@link UserSessionManager} implementations to delegate
+ * {@link UserSessionManager#addBearer(String, IDToken)} and {@link UserSessionManager#getBearer(String)} to.
+ * <p>
+ * The tokens are spread over a number of shards by the hash of the access token, each with its own lock, so threads
+ * only wait for each other when they use the same shard. All tokens live equally long, which makes the order in which
+ * they were added the order in which they expire: a shard keeps its tokens in that order and removes the expired ones
+ * from the front whenever a token is added, without looking at the others. A token is never given after it expired,
+ * also when it wasn't removed yet.
+ * <p>
+ * The number of tokens is bounded. The bound is divided over the shards, and a full shard removes its oldest token to
+ * make room, so the store may start evicting a little before it holds the maximum number of tokens.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+public final class BearerStore {
+    private final Shard[] shards;
+    private final int mask;
+    private final int maxPerShard;
+    private final long lifetime;
+    private final Long expiresIn;
+    private final LongSupplier ticker;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor for BearerStore
+     *
+     * @param lifetime
+     *            how long a token is valid, in whole seconds as that is what the token response tells
+     * @param maxSize
+     *            the maximum number of tokens
+     */
+    public BearerStore(Duration lifetime, int maxSize) {
+        this(lifetime, maxSize, Runtime.getRuntime().availableProcessors() * 4, System::nanoTime);
+    }
+
+    /**
+     * Constructor for BearerStore with a number of shards and a clock, for testing
+     */
+    BearerStore(Duration lifetime, int maxSize, int shardCount, LongSupplier ticker) {
+        super();
+        if (lifetime.getSeconds() <= 0 || lifetime.getNano() != 0) {
+            throw new IllegalArgumentException("lifetime must be a positive number of seconds: " + lifetime);
+        }
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        int count = Integer.highestOneBit(Math.max(1, Math.min(shardCount, maxSize)));
+        this.shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard();
+        }
+        this.mask = count - 1;
+        this.maxPerShard = (maxSize + count - 1) / count;
+        this.lifetime = lifetime.toNanos();
+        this.expiresIn = Long.valueOf(lifetime.getSeconds());
+        this.ticker = ticker;
+    }
+
+    /**
+     * Stores a token, replacing the one with the same access token if there is one
+     *
+     * @param at
+     *            the access token
+     * @param idt
+     *            the user it was given for
+     * @return the number of seconds the token is valid, which is exactly how long {@link #get(String)} will give it
+     */
+    public Long put(String at, IDToken idt) {
+        long now = ticker.getAsLong();
+        Shard shard = shardFor(at);
+        int evicted = 0;
+        synchronized (shard) {
+            // a replaced token goes to the back like a new one
+            shard.entries.remove(at);
+            Iterator<Entry> oldest = shard.entries.values().iterator();
+            while (oldest.hasNext()) {
+                Entry entry = oldest.next();
+                if (now - entry.expiresAt < 0 && shard.entries.size() < maxPerShard) {
+                    break;
+                }
+                if (now - entry.expiresAt < 0) {
+                    evicted++;
+                }
+                oldest.remove();
+            }
+            shard.entries.put(at, new Entry(idt, now + lifetime));
+        }
+        if (evicted > 0) {
+            evictions.add(evicted);
+        }
+        return expiresIn;
+    }
+
+    /**
+     * @param at
+     *            the access token
+     * @return the user the token was stored for, null if there is none or it expired
+     */
+    public IDToken get(String at) {
+        long now = ticker.getAsLong();
+        Shard shard = shardFor(at);
+        Entry entry;
+        synchronized (shard) {
+            entry = shard.entries.get(at);
+            if (entry != null && now - entry.expiresAt >= 0) {
+                shard.entries.remove(at);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.idToken;
+    }
+
+    /**
+     * Forgets a token, e.g. when it is revoked
+     *
+     * @param at
+     *            the access token
+     * @return whether the token was there
+     */
+    public boolean remove(String at) {
+        Shard shard = shardFor(at);
+        synchronized (shard) {
+            return shard.entries.remove(at) != null;
+        }
+    }
+
+    /**
+     * Removes the expired tokens of all shards. Not needed for correctness, but it frees the memory of shards that
+     * nothing was added to for a while.
+     */
+    public void expire() {
+        long now = ticker.getAsLong();
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                Iterator<Entry> oldest = shard.entries.values().iterator();
+                while (oldest.hasNext() && now - oldest.next().expiresAt >= 0) {
+                    oldest.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of tokens, including the expired ones that weren't removed yet
+     */
+    public int size() {
+        int result = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                result += shard.entries.size();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the counters as they are now, there are no refreshes
+     */
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), 0L, evictions.sum(), size());
+    }
+
+    private Shard shardFor(String at) {
+        int h = at.hashCode();
+        return shards[(h ^ (h >>> 16)) & mask];
+    }
+
+    @Override
+    public String toString() {
+        return "BearerStore [shards=" + shards.length + ", " + stats() + "]";
+    }
+
+    /**
+     * The tokens of one shard, oldest first, guarded by the shard itself
+     */
+    private static final class Shard {
+        private final Map<String, Entry> entries = new LinkedHashMap<>();
+    }
+
+    private static final class Entry {
+        private final IDToken idToken;
+        private final long expiresAt;
+
+        Entry(IDToken idToken, long expiresAt) {
+            this.idToken = idToken;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
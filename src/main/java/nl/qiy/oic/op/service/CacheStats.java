@@ -0,0 +1,95 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.service;
+
+/**
+ * The counters of a cache at one moment, to be used for monitoring
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+public final class CacheStats {
+    private final long hits;
+    private final long misses;
+    private final long refreshes;
+    private final long evictions;
+    private final int size;
+
+    /**
+     * Constructor for CacheStats
+     */
+    CacheStats(long hits, long misses, long refreshes, long evictions, int size) {
+        super();
+        this.hits = hits;
+        this.misses = misses;
+        this.refreshes = refreshes;
+        this.evictions = evictions;
+        this.size = size;
+    }
+
+    /**
+     * @return the number of lookups that were answered from the cache, including cached absences
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that had to ask the service provider
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of entries that were loaded again in the background before they expired
+     */
+    public long getRefreshes() {
+        return refreshes;
+    }
+
+    /**
+     * @return the number of entries that were removed before they expired, to make room
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return hits / (hits + misses), 1.0 if there were no lookups
+     */
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 1.0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats [hits=" + hits + ", misses=" + misses + ", refreshes=" + refreshes + ", evictions="
+                + evictions + ", size=" + size + "]";
+    }
+}
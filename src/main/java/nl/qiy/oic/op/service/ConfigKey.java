@@ -0,0 +1,184 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.service;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Function;
+
+import nl.qiy.oic.op.service.spi.Configuration;
+
+/**
+ * A configuration key with the type of its value and an optional default. Values are read through
+ * {@link ConfigurationService#current()}, which resolves them once and keeps them until the configuration is reloaded.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+public final class ConfigKey<T> {
+    /**
+     * The issuer, see {@link Configuration#ISS}
+     */
+    public static final ConfigKey<String> ISS = required(Configuration.ISS, String.class);
+    /**
+     * The base URI of the endpoints, see {@link Configuration#BASE_URI}
+     */
+    public static final ConfigKey<URI> BASE_URI = required(Configuration.BASE_URI, URI.class);
+    /**
+     * The number of authorization request templates to keep, see {@link Configuration#REQUEST_CACHE_SIZE}. Zero (the
+     * default) turns the cache off.
+     */
+    public static final ConfigKey<Integer> REQUEST_CACHE_SIZE = optional(Configuration.REQUEST_CACHE_SIZE,
+            Integer.class, Integer.valueOf(0)).convertedBy(
+                    value -> value instanceof Number ? ((Number) value).intValue() : Integer.valueOf(value.toString()));
+    /**
+     * The format of the access tokens, see {@link Configuration#ACCESS_TOKEN_FORMAT}: "opaque" (the default) for
+     * random tokens that are stored, "jwt" for self-contained tokens
+     */
+    public static final ConfigKey<String> ACCESS_TOKEN_FORMAT = optional(Configuration.ACCESS_TOKEN_FORMAT,
+            String.class, "opaque");
+    /**
+     * How long self-contained access tokens are valid, see {@link Configuration#ACCESS_TOKEN_LIFETIME}. Configured in
+     * seconds, one hour by default.
+     */
+    public static final ConfigKey<Duration> ACCESS_TOKEN_LIFETIME = optional(Configuration.ACCESS_TOKEN_LIFETIME,
+            Duration.class, Duration.ofHours(1)).convertedBy(value -> Duration.ofSeconds(
+                    value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString())));
+
+    private final String name;
+    private final Class<T> type;
+    private final T defaultValue;
+    private final Function<Object, T> converter;
+
+    private ConfigKey(String name, Class<T> type, T defaultValue, Function<Object, T> converter) {
+        super();
+        this.name = Objects.requireNonNull(name);
+        this.type = Objects.requireNonNull(type);
+        this.defaultValue = defaultValue;
+        this.converter = converter;
+    }
+
+    /**
+     * A key that must be configured. URIs may be configured as strings.
+     * 
+     * @param name
+     *            the name the {@link Configuration} providers know the value by
+     * @param type
+     *            the type of the value
+     * @return see description
+     */
+    public static <T> ConfigKey<T> required(String name, Class<T> type) {
+        return new ConfigKey<>(name, type, null, null);
+    }
+
+    /**
+     * A key that need not be configured
+     * 
+     * @param name
+     *            the name the {@link Configuration} providers know the value by
+     * @param type
+     *            the type of the value
+     * @param defaultValue
+     *            the value if no provider has one
+     * @return see description
+     */
+    public static <T> ConfigKey<T> optional(String name, Class<T> type, T defaultValue) {
+        return new ConfigKey<>(name, type, Objects.requireNonNull(defaultValue), null);
+    }
+
+    /**
+     * Returns a key like this one, that turns the configured value into the type with the given function. Use this for
+     * types that aren't configured as such, e.g. a Duration that is configured as a number of seconds.
+     * 
+     * @param converter
+     *            gets the configured value, which is never null
+     * @return see description
+     */
+    public ConfigKey<T> convertedBy(Function<Object, T> converter) {
+        return new ConfigKey<>(name, type, defaultValue, Objects.requireNonNull(converter));
+    }
+
+    /**
+     * @return the name the {@link Configuration} providers know the value by
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the type of the value
+     */
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * Turns what the providers gave into the value of this key
+     * 
+     * @param configured
+     *            what the providers gave, null if they had nothing
+     * @return see description
+     * @throws IllegalStateException
+     *             if there is no value and no default, or if the value can't be turned into the type of this key
+     */
+    T resolve(Object configured) {
+        if (configured == null) {
+            if (defaultValue == null) {
+                throw new IllegalStateException("No configuration found for " + name);
+            }
+            return defaultValue;
+        }
+        if (converter != null) {
+            return converter.apply(configured);
+        }
+        if (type.isInstance(configured)) {
+            return type.cast(configured);
+        }
+        if (type == URI.class && configured instanceof String) {
+            return type.cast(URI.create((String) configured));
+        }
+        throw new IllegalStateException("Configuration " + name + " is a " + configured.getClass().getName()
+                + ", expected " + type.getName());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ConfigKey)) {
+            return false;
+        }
+        ConfigKey<?> other = (ConfigKey<?>) obj;
+        return name.equals(other.name) && type == other.type && Objects.equals(defaultValue, other.defaultValue)
+                && Objects.equals(converter, other.converter);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, type, defaultValue);
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigKey [name=" + name + ", type=" + type.getSimpleName() + "]";
+    }
+}
@@ -19,7 +19,13 @@
 
 package nl.qiy.oic.op.service;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import nl.qiy.oic.op.service.spi.Configuration;
 
@@ -31,7 +37,18 @@ import nl.qiy.oic.op.service.spi.Configuration;
  */
 public enum ConfigurationService implements LoadingService {
     INSTANCE;
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationService.class);
+
     private final FCFSServiceLoaderWrapper<Configuration> loader = new FCFSServiceLoaderWrapper<>(Configuration.class);
+    /**
+     * Made on first use, replaced on reload
+     */
+    private volatile ConfigurationSnapshot snapshot;
+    private final List<BiConsumer<ConfigurationSnapshot, ConfigurationSnapshot>> changeListeners =
+            new CopyOnWriteArrayList<>();
 
     /**
      * Gets the value of a key. Will throw an exception if no item was found.
@@ -43,8 +60,102 @@ public enum ConfigurationService implements LoadingService {
      * @return the configured value
      */
     public static <T> T get(String key) {
-        Optional<T> result = INSTANCE.loader.get(conf -> conf.get(key));
+        Optional<T> result = INSTANCE.loader.get(key, conf -> conf.get(key));
         return result.orElseThrow(() -> new IllegalStateException("No configuration found for " + key));
     }
 
+    /**
+     * Gets the typed configuration. Prefer this over {@link #get(String)} where a value is needed on every request:
+     * the values are looked up once, not per call.
+     * 
+     * @return see description
+     * @throws IllegalStateException
+     *             if the issuer or base URI is not configured
+     */
+    public static ConfigurationSnapshot current() {
+        ConfigurationSnapshot result = INSTANCE.snapshot;
+        if (result == null) {
+            // racing threads may each make one, they're equal
+            result = INSTANCE.newSnapshot();
+            INSTANCE.snapshot = result;
+        }
+        return result;
+    }
+
+    /**
+     * Gets the value of a key from {@link #current()}
+     * 
+     * @param key
+     *            the key
+     * @return the configured value or the key's default
+     */
+    public static <T> T get(ConfigKey<T> key) {
+        return current().get(key);
+    }
+
+    /**
+     * Loads the {@link Configuration} providers again, replaces the snapshot that {@link #current()} returns and
+     * notifies the change listeners
+     * 
+     * @throws IllegalStateException
+     *             if the new configuration lacks the issuer or base URI, in which case the old snapshot is kept
+     */
+    public static void reload() {
+        synchronized (INSTANCE) {
+            INSTANCE.loader.reload();
+            INSTANCE.publish();
+        }
+    }
+
+    /**
+     * To be called by a {@link Configuration} provider whose values have changed. Forgets which provider answers which
+     * key, replaces the snapshot that {@link #current()} returns and notifies the change listeners.
+     * 
+     * @throws IllegalStateException
+     *             if the new configuration lacks the issuer or base URI, in which case the old snapshot is kept
+     */
+    public static void changed() {
+        synchronized (INSTANCE) {
+            INSTANCE.loader.clearRoutes();
+            INSTANCE.publish();
+        }
+    }
+
+    /**
+     * Registers a listener that is called (on the thread that changed the configuration) after every change, with the
+     * old snapshot (null if none was made yet) and the new one. Useful to rebuild caches on top of the configuration
+     * ahead of traffic.
+     * 
+     * @param listener
+     *            the listener
+     */
+    public static void addChangeListener(BiConsumer<ConfigurationSnapshot, ConfigurationSnapshot> listener) {
+        INSTANCE.changeListeners.add(listener);
+    }
+
+    private void publish() {
+        ConfigurationSnapshot old = snapshot;
+        ConfigurationSnapshot result = newSnapshot();
+        snapshot = result;
+        LOGGER.info("configuration changed: {}", result);
+        for (BiConsumer<ConfigurationSnapshot, ConfigurationSnapshot> listener : changeListeners) {
+            try {
+                listener.accept(old, result);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Error while notifying {} of a configuration change", listener, e);
+            }
+        }
+    }
+
+    /**
+     * Drops the snapshot, e.g. after the providers were reloaded, the next call to {@link #current()} makes a new one
+     */
+    void invalidate() {
+        snapshot = null;
+    }
+
+    private ConfigurationSnapshot newSnapshot() {
+        return new ConfigurationSnapshot(key -> loader.get(key, conf -> conf.get(key)).orElse(null));
+    }
+
 }
@@ -0,0 +1,104 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.service;
+
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * The configuration as it was when this object was made. The values that are needed on every request are plain fields,
+ * any other {@link ConfigKey} is resolved on first use and then kept. A new snapshot is made when the configuration is
+ * reloaded (see {@link ConfigurationService#reload()}), threads holding this one keep seeing the old values.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+public final class ConfigurationSnapshot {
+    private final Function<String, Object> lookup;
+    private final ConcurrentMap<ConfigKey<?>, Object> values = new ConcurrentHashMap<>();
+    private final String issuer;
+    private final URI issuerUri;
+    private final URI baseUri;
+
+    /**
+     * Constructor for ConfigurationSnapshot, resolves the values that have a field
+     * 
+     * @param lookup
+     *            gives the configured value for a name, or null
+     * @throws IllegalStateException
+     *             if one of those values is missing or of the wrong type
+     */
+    ConfigurationSnapshot(Function<String, Object> lookup) {
+        super();
+        this.lookup = lookup;
+        this.issuer = get(ConfigKey.ISS);
+        this.issuerUri = URI.create(issuer);
+        this.baseUri = get(ConfigKey.BASE_URI);
+    }
+
+    /**
+     * Gets the value of a key, resolving it the first time it is asked for
+     * 
+     * @param key
+     *            the key
+     * @return the configured value or the key's default
+     * @throws IllegalStateException
+     *             if there is no value and no default, or if the value is of the wrong type
+     */
+    public <T> T get(ConfigKey<T> key) {
+        Object result = values.get(key);
+        if (result == null) {
+            result = key.resolve(lookup.apply(key.getName()));
+            Object previous = values.putIfAbsent(key, result);
+            if (previous != null) {
+                result = previous;
+            }
+        }
+        return key.getType().cast(result);
+    }
+
+    /**
+     * @return the issuer as it goes into the iss claim
+     */
+    public String getIssuer() {
+        return issuer;
+    }
+
+    /**
+     * @return the issuer as it goes into the discovery document
+     */
+    public URI getIssuerUri() {
+        return issuerUri;
+    }
+
+    /**
+     * @return the base URI of the endpoints
+     */
+    public URI getBaseUri() {
+        return baseUri;
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigurationSnapshot [issuer=" + issuer + ", baseUri=" + baseUri + ", values=" + values + "]";
+    }
+}
@@ -20,7 +20,6 @@
 package nl.qiy.oic.op.service;
 
 import java.util.Iterator;
-import java.util.ServiceLoader;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
 
@@ -43,9 +42,9 @@ public class DecoratingServiceLoaderWrapper<T extends ServiceProviderInterface>
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(DecoratingServiceLoaderWrapper.class);
     /**
-     * The actual {@link ServiceLoader}, which is not threadsafe, so wrapping it in a {@link ThreadLocal}
+     * The providers, shared by all threads
      */
-    private final ThreadLocal<ServiceLoader<T>> loader;
+    private final ProviderSnapshot<T> snapshot;
 
     /**
      * Constructor for DecoratingServiceLoaderWrapper
@@ -55,25 +54,19 @@ public class DecoratingServiceLoaderWrapper<T extends ServiceProviderInterface>
      */
     DecoratingServiceLoaderWrapper(Class<T> serviceInterface) {
         super();
-        this.loader = ThreadLocal.withInitial(() -> ServiceLoader.load(serviceInterface));
-        Iterator<T> iter = this.loader.get().iterator();
-        if (!iter.hasNext()) {
-            String name = serviceInterface.getName();
-            throw new IllegalStateException(
-                    "No service found that implements " + name + ". Please check that file META-INF/services/" + name
-                            + " exists, is readable and has at least one implementing class in it's body");
-        }
-        while (iter.hasNext()) {
-            T item = iter.next();
-            if (!item.isHealthy()) {
-                LOGGER.error("{} is reporting it's unhealthy", item.getClass());
-            }
-        }
+        this.snapshot = new ProviderSnapshot<>(serviceInterface);
+    }
+
+    /**
+     * Loads the providers again, see {@link ProviderSnapshot#reload()}
+     */
+    void reload() {
+        snapshot.reload();
     }
 
     @Override
     public Iterator<T> iterator() {
-        return loader.get().iterator();
+        return snapshot.iterator();
     }
 
     /**
@@ -93,7 +86,7 @@ public class DecoratingServiceLoaderWrapper<T extends ServiceProviderInterface>
     @SuppressWarnings("ucd")
     public <R> R get(Function<T, R> func, Function<T, BinaryOperator<R>> combinator) {
         R result = null;
-        for (T serviceProvider : loader.get()) {
+        for (T serviceProvider : snapshot.providers()) {
             R newResult = func.apply(serviceProvider);
             result = combinator.apply(serviceProvider).apply(newResult, result);
         }
@@ -0,0 +1,272 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache in front of a slow lookup, e.g. a database behind a service provider. Entries expire a fixed time after they
+ * were written. A hit on an entry that is close to expiring loads the value again in the background, so busy keys don't
+ * expire at all. A null result ("not found") is cached as well, but shorter, so unknown keys don't reach the lookup on
+ * every request while new ones are found soon enough.
+ * <p>
+ * The number of entries is bounded. Every write is queued, values and absent values each in their own queue, so both
+ * queues are in the order the entries expire. Before a write the expired entries are taken from the front of the
+ * queues and, if the cache is still full, the entry that expires first is evicted. Reads don't take a lock, writes
+ * (which follow a slow lookup anyway) do.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+final class ExpiringCache<K, V> {
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExpiringCache.class);
+    /**
+     * Does the background loads of all caches
+     */
+    private static final Executor REFRESHER = Executors.newSingleThreadExecutor(r -> {
+        Thread result = new Thread(r, "cache-refresh");
+        result.setDaemon(true);
+        return result;
+    });
+
+    private final String name;
+    private final Function<K, V> lookup;
+    private final int maxSize;
+    private final long ttl;
+    private final long negativeTtl;
+    private final LongSupplier ticker;
+    private final Executor refresher;
+    private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    /**
+     * The writes of values and of absent values, oldest first. Guarded by itself, as is every change to entries
+     * except invalidate. An entry that was replaced or invalidated stays queued until it comes to the front.
+     */
+    private final Queue<Written<K, V>> written = new ArrayDeque<>();
+    private final Queue<Written<K, V>> writtenAbsent = new ArrayDeque<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor for ExpiringCache
+     * 
+     * @param name
+     *            for logging
+     * @param lookup
+     *            gives the value for a key, or null if there is none
+     * @param maxSize
+     *            the maximum number of entries
+     * @param ttl
+     *            how long a value is kept
+     * @param negativeTtl
+     *            how long the absence of a value is kept
+     */
+    ExpiringCache(String name, Function<K, V> lookup, int maxSize, Duration ttl, Duration negativeTtl) {
+        this(name, lookup, maxSize, ttl, negativeTtl, System::nanoTime, REFRESHER);
+    }
+
+    /**
+     * Constructor for ExpiringCache with a clock and a thread for the background loads, for testing
+     */
+    ExpiringCache(String name, Function<K, V> lookup, int maxSize, Duration ttl, Duration negativeTtl,
+            LongSupplier ticker, Executor refresher) {
+        super();
+        this.name = name;
+        this.lookup = lookup;
+        this.maxSize = maxSize;
+        this.ttl = ttl.toNanos();
+        this.negativeTtl = negativeTtl.toNanos();
+        this.ticker = ticker;
+        this.refresher = refresher;
+    }
+
+    /**
+     * Gets the value for a key, from the cache if it's there and not expired, otherwise from the lookup
+     * 
+     * @param key
+     *            the key
+     * @return the value, null if the lookup has none
+     */
+    V get(K key) {
+        long now = ticker.getAsLong();
+        Entry<V> entry = entries.get(key);
+        if (entry != null && now - entry.expiresAt < 0) {
+            hits.increment();
+            if (now - entry.refreshAt >= 0 && entry.refreshing.compareAndSet(false, true)) {
+                refresher.execute(() -> refresh(key, entry));
+            }
+            return entry.value;
+        }
+        misses.increment();
+        V result = lookup.apply(key);
+        put(key, result, now);
+        return result;
+    }
+
+    private void refresh(K key, Entry<V> entry) {
+        try {
+            V result = lookup.apply(key);
+            long now = ticker.getAsLong();
+            Entry<V> refreshed = newEntry(result, now);
+            synchronized (written) {
+                // don't bring back an entry that was invalidated or replaced in the meantime
+                if (entries.replace(key, entry, refreshed)) {
+                    queue(result).add(new Written<>(key, refreshed));
+                    refreshes.increment();
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("{}: error while refreshing {}, keeping the old value until it expires", name, key, e);
+        }
+    }
+
+    private void put(K key, V value, long now) {
+        Entry<V> entry = newEntry(value, now);
+        synchronized (written) {
+            removeExpired(written, now);
+            removeExpired(writtenAbsent, now);
+            while (entries.size() >= maxSize && !entries.containsKey(key) && evictFirst()) {
+                // until there is room
+            }
+            entries.put(key, entry);
+            queue(value).add(new Written<>(key, entry));
+        }
+    }
+
+    private Queue<Written<K, V>> queue(V value) {
+        return value == null ? writtenAbsent : written;
+    }
+
+    private Entry<V> newEntry(V value, long now) {
+        long lifetime = value == null ? negativeTtl : ttl;
+        // refresh when a fifth of the lifetime is left, absent values are simply looked up again
+        long refreshAt = value == null ? now + lifetime : now + lifetime - lifetime / 5;
+        return new Entry<>(value, now + lifetime, refreshAt);
+    }
+
+    /**
+     * Removes the expired entries at the front of the queue, must hold the lock
+     */
+    private void removeExpired(Queue<Written<K, V>> queue, long now) {
+        Written<K, V> first = queue.peek();
+        while (first != null && now - first.entry.expiresAt >= 0) {
+            queue.remove();
+            entries.remove(first.key, first.entry);
+            first = queue.peek();
+        }
+    }
+
+    /**
+     * Evicts the entry that expires first, must hold the lock
+     * 
+     * @return false if there was nothing left to evict
+     */
+    private boolean evictFirst() {
+        Written<K, V> value = written.peek();
+        Written<K, V> absent = writtenAbsent.peek();
+        if (value == null && absent == null) {
+            return false;
+        }
+        // else
+        boolean absentFirst = value == null || (absent != null && absent.entry.expiresAt - value.entry.expiresAt < 0);
+        Written<K, V> first = absentFirst ? writtenAbsent.remove() : written.remove();
+        // an entry that was replaced or invalidated since doesn't make room
+        if (entries.remove(first.key, first.entry)) {
+            evictions.increment();
+        }
+        return true;
+    }
+
+    /**
+     * Forgets the value for a key, e.g. after it was changed
+     * 
+     * @param key
+     *            the key
+     */
+    void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Forgets all values
+     */
+    void invalidateAll() {
+        synchronized (written) {
+            entries.clear();
+            written.clear();
+            writtenAbsent.clear();
+        }
+    }
+
+    /**
+     * @return the counters as they are now
+     */
+    CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), refreshes.sum(), evictions.sum(), entries.size());
+    }
+
+    @Override
+    public String toString() {
+        return "ExpiringCache [name=" + name + ", " + stats() + "]";
+    }
+
+    /**
+     * An entry as it was written for a key
+     */
+    private static final class Written<K, V> {
+        private final K key;
+        private final Entry<V> entry;
+
+        Written(K key, Entry<V> entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+        private final long refreshAt;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(V value, long expiresAt, long refreshAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.refreshAt = refreshAt;
+        }
+    }
+}
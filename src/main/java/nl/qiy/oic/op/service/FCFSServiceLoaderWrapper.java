@@ -19,9 +19,13 @@
 
 package nl.qiy.oic.op.service;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Optional;
 import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 
 import org.slf4j.Logger;
@@ -45,16 +49,26 @@ final class FCFSServiceLoaderWrapper<T extends ServiceProviderInterface> impleme
      * Standard SLF4J Logger
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(FCFSServiceLoaderWrapper.class);
+    /**
+     * The maximum number of keys in the routing table
+     */
+    private static final int MAX_ROUTES = 1024;
 
     /**
-     * The actual {@link ServiceLoader}, which is not threadsafe, so wrapping it in a {@link ThreadLocal}
+     * The providers, shared by all threads
      */
-    private final ThreadLocal<ServiceLoader<T>> loader;
+    private final ProviderSnapshot<T> snapshot;
     /**
      * Since actual implementations are likely to have one service provider that actually works, cache that one and use
-     * it first on subsequent calls
+     * it first on subsequent calls. Only valid for the providers it was found in, so a reload resets it.
      */
-    private T lastSuccesfull = null;
+    private volatile Preferred<T> lastSuccesfull = null;
+    /**
+     * Which provider answered which key in {@link #get(String, Function)}
+     */
+    private final ConcurrentMap<String, Route<T>> routes = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
 
     /**
      * Constructor for FCFSServiceLoaderWrapper
@@ -64,23 +78,9 @@ final class FCFSServiceLoaderWrapper<T extends ServiceProviderInterface> impleme
      */
     FCFSServiceLoaderWrapper(Class<T> serviceInterface) {
         super();
-        this.loader = ThreadLocal.withInitial(() -> ServiceLoader.load(serviceInterface));
-        Iterator<T> iter = this.loader.get().iterator();
-        if (!iter.hasNext()) {
-            String name = serviceInterface.getName();
-            throw new IllegalStateException(
-                    "No service found that implements " + name + ". Please check that file META-INF/services/" + name
-                            + " exists, is readable and has at least one implementing class in it's body");
-        }
-        while (iter.hasNext()) {
-            T item = iter.next();
-            if (!item.isHealthy()) {
-                LOGGER.error("{} is reporting it's unhealthy", item.getClass());
-            }
-        }
+        this.snapshot = new ProviderSnapshot<>(serviceInterface);
     }
 
-
     /**
      * Will iterate over the loader and for each item call the function. If that function yields a non-null result it is
      * wrapped in an {@link Optional} and returned. If no item was able to provide a result {@link Optional#empty()} is
@@ -92,8 +92,10 @@ final class FCFSServiceLoaderWrapper<T extends ServiceProviderInterface> impleme
      * @return the first result any element of the loader could provide, or {@link Optional#empty()}
      */
     protected <R> Optional<R> get(Function<T, R> func) {
-        // copy the pointer to make this threadsafe
-        T tryMeFirst = lastSuccesfull;
+        // copy the pointers to make this threadsafe
+        T[] providers = snapshot.providers();
+        Preferred<T> preferred = lastSuccesfull;
+        T tryMeFirst = preferred != null && preferred.providers == providers ? preferred.provider : null;
 
         // Try a shortcut. The rationale behind this is that normally there will be two implementations active: the
         // default implementation and (maybe) the one that is used by the actual implementation of this project. The
@@ -106,15 +108,15 @@ final class FCFSServiceLoaderWrapper<T extends ServiceProviderInterface> impleme
         }
 
         // if that failed, do it all over again
-        for (T t : loader.get()) {
-            if (tryMeFirst != null && t.getClass().equals(tryMeFirst.getClass())) {
+        for (T t : providers) {
+            if (t == tryMeFirst) {
                 // already tried that
                 continue;
             }
             R result = func.apply(t);
             if (result != null) {
                 LOGGER.debug("result found in {}", t);
-                lastSuccesfull = t;
+                lastSuccesfull = new Preferred<>(providers, t);
                 return Optional.of(result);
             }
         }
@@ -123,9 +125,123 @@ final class FCFSServiceLoaderWrapper<T extends ServiceProviderInterface> impleme
         return Optional.empty();
     }
 
+    /**
+     * Like {@link #get(Function)}, but remembers per key which provider gave the result, or that none did. The next
+     * call for the same key goes straight to that provider, or returns {@link Optional#empty()} at once. Use this only
+     * when the answer for a key is stable until the providers are reloaded (see {@link #clearRoutes()}).
+     * 
+     * @param key
+     *            identifies what is looked up, e.g. the configuration key
+     * @param func
+     *            a function that takes an element of the loader and returns something which will define the return type
+     *            of this function
+     * @return the first result any element of the loader could provide, or {@link Optional#empty()}
+     */
+    protected <R> Optional<R> get(String key, Function<T, R> func) {
+        T[] providers = snapshot.providers();
+        Route<T> route = routes.get(key);
+        T tried = null;
+        // routes that were made for providers that have since been reloaded don't count
+        if (route != null && route.providers == providers) {
+            if (route.provider == null) {
+                hits.increment();
+                return Optional.empty();
+            }
+            R result = func.apply(route.provider);
+            if (result != null) {
+                hits.increment();
+                return Optional.of(result);
+            }
+            // the provider no longer knows, find out who does
+            tried = route.provider;
+        }
+
+        misses.increment();
+        for (T t : providers) {
+            if (t == tried) {
+                continue;
+            }
+            R result = func.apply(t);
+            if (result != null) {
+                remember(key, new Route<>(providers, t));
+                return Optional.of(result);
+            }
+        }
+        remember(key, new Route<>(providers, null));
+        return Optional.empty();
+    }
+
+    private void remember(String key, Route<T> route) {
+        // bounded: once full only the known keys are updated
+        if (routes.size() < MAX_ROUTES || routes.containsKey(key)) {
+            routes.put(key, route);
+        }
+    }
+
+    /**
+     * Forgets which provider answers which key
+     */
+    void clearRoutes() {
+        routes.clear();
+    }
+
+    /**
+     * @return the number of calls to {@link #get(String, Function)} that were answered through the routing table
+     */
+    long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of calls to {@link #get(String, Function)} that needed to ask the providers in turn
+     */
+    long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Loads the providers again, see {@link ProviderSnapshot#reload()}
+     */
+    void reload() {
+        snapshot.reload();
+        clearRoutes();
+    }
+
     @Override
     public Iterator<T> iterator() {
-        return loader.get().iterator();
+        return snapshot.iterator();
+    }
+
+    @Override
+    public String toString() {
+        return "FCFSServiceLoaderWrapper [providers=" + Arrays.toString(snapshot.providers()) + ", routes="
+                + routes.size() + ", hits=" + hits + ", misses=" + misses + "]";
+    }
+
+    /**
+     * The provider that answers a key (null if none does), with the providers it was part of
+     */
+    private static final class Route<T> {
+        private final T[] providers;
+        private final T provider;
+
+        Route(T[] providers, T provider) {
+            this.providers = providers;
+            this.provider = provider;
+        }
+    }
+
+    /**
+     * The provider that gave the last result, with the providers it was part of
+     */
+    private static final class Preferred<T> {
+        private final T[] providers;
+        private final T provider;
+
+        Preferred(T[] providers, T provider) {
+            this.providers = providers;
+            this.provider = provider;
+        }
     }
 
 }
@@ -0,0 +1,258 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+
+import nl.qiy.oic.op.domain.KeyUsePredicate;
+
+/**
+ * An immutable, versioned snapshot of the keys of one type (e.g. "idToken"). A new snapshot is made each time a
+ * {@link nl.qiy.oic.op.service.spi.SecretStore} announces new keys through
+ * {@link SecretService#announce(String, JWKSet, Duration)}. Keys that were replaced stay available (for verification
+ * and publication) until their overlap window has passed.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+public final class KeyMaterial {
+    private final String type;
+    private final long version;
+    private final JWKSet current;
+    private final Map<KeyUsePredicate, JWK> keysByUse;
+    private final Map<String, JWK> keysById;
+    private final List<Retired> retired;
+
+    /**
+     * Constructor for KeyMaterial
+     * 
+     * @param type
+     *            one of idToken, userInfo or requestObject
+     * @param version
+     *            increases by one on every rotation
+     * @param current
+     *            the keys as given by the SecretStore
+     * @param retired
+     *            keys that are no longer current, but that may still be in use by relying parties
+     */
+    private KeyMaterial(String type, long version, JWKSet current, List<Retired> retired) {
+        super();
+        this.type = type;
+        this.version = version;
+        this.current = current;
+        this.retired = Collections.unmodifiableList(retired);
+
+        Map<KeyUsePredicate, JWK> byUse = new EnumMap<>(KeyUsePredicate.class);
+        for (KeyUsePredicate use : KeyUsePredicate.values()) {
+            current.getKeys().stream().filter(use).findFirst().ifPresent(jwk -> byUse.put(use, jwk));
+        }
+        this.keysByUse = Collections.unmodifiableMap(byUse);
+
+        Map<String, JWK> byId = new HashMap<>();
+        retired.forEach(r -> byId.put(keyId(r.jwk), r.jwk));
+        current.getKeys().forEach(jwk -> byId.put(keyId(jwk), jwk));
+        this.keysById = Collections.unmodifiableMap(byId);
+    }
+
+    /**
+     * Creates the first version of the key material
+     * 
+     * @param type
+     *            one of idToken, userInfo or requestObject
+     * @param jwkSet
+     *            the keys as given by the SecretStore
+     * @return see description
+     */
+    static KeyMaterial of(String type, JWKSet jwkSet) {
+        return new KeyMaterial(type, 1L, jwkSet, Collections.emptyList());
+    }
+
+    /**
+     * Creates the next version of the key material. Keys from this version that are not in the new set are kept
+     * available for the overlap window, keys that were retired earlier are dropped once their window has passed.
+     * 
+     * @param jwkSet
+     *            the new keys
+     * @param overlap
+     *            how long replaced keys should still be published
+     * @return see description
+     */
+    KeyMaterial next(JWKSet jwkSet, Duration overlap) {
+        Instant now = Instant.now();
+        Map<String, JWK> newKeys = new HashMap<>();
+        jwkSet.getKeys().forEach(jwk -> newKeys.put(keyId(jwk), jwk));
+
+        List<Retired> stillRetired = new ArrayList<>();
+        for (Retired r : retired) {
+            if (r.until.isAfter(now) && !newKeys.containsKey(keyId(r.jwk))) {
+                stillRetired.add(r);
+            }
+        }
+        Instant until = now.plus(overlap);
+        for (JWK jwk : current.getKeys()) {
+            // without an overlap the replaced keys are dropped at once
+            if (until.isAfter(now) && !newKeys.containsKey(keyId(jwk))) {
+                stillRetired.add(new Retired(jwk, until));
+            }
+        }
+        return new KeyMaterial(type, version + 1, jwkSet, stillRetired);
+    }
+
+    /**
+     * The key id as given by the key, or its thumbprint if there is none
+     * 
+     * @param jwk
+     *            the key
+     * @return see description
+     */
+    public static String keyId(JWK jwk) {
+        if (jwk.getKeyID() != null) {
+            return jwk.getKeyID();
+        }
+        // else
+        try {
+            return jwk.computeThumbprint().toString();
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Unable to compute the thumbprint of a key", e);
+        }
+    }
+
+    /**
+     * @return one of idToken, userInfo or requestObject
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return the version of this snapshot, starting at 1 and increasing by one on every rotation
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * returns the first current key with the appropriate use
+     * 
+     * @param keyUse
+     *            whether the key is used for signing or encryption
+     * @return see description
+     */
+    public Optional<JWK> findKey(KeyUsePredicate keyUse) {
+        return Optional.ofNullable(keysByUse.get(keyUse));
+    }
+
+    /**
+     * returns the first current key with the appropriate use, throws an exception if there is none
+     * 
+     * @param keyUse
+     *            whether the key is used for signing or encryption
+     * @return see description
+     */
+    public JWK getKey(KeyUsePredicate keyUse) {
+        JWK result = keysByUse.get(keyUse);
+        if (result == null) {
+            throw new IllegalStateException("No " + keyUse + " key found for " + type);
+        }
+        return result;
+    }
+
+    /**
+     * returns the current or retired key with the given id, e.g. to verify something that was signed just before a
+     * rotation
+     * 
+     * @param kid
+     *            the key id (or thumbprint if the key has no id)
+     * @return see description
+     */
+    public Optional<JWK> findKey(String kid) {
+        return Optional.ofNullable(keysById.get(kid));
+    }
+
+    /**
+     * @return the keys as given by the SecretStore for this version
+     */
+    public JWKSet getCurrentSet() {
+        return current;
+    }
+
+    /**
+     * @return the current keys followed by the retired keys whose overlap window has not passed yet. This is what
+     *         should be published to relying parties.
+     */
+    public JWKSet getPublishedSet() {
+        if (retired.isEmpty()) {
+            return current;
+        }
+        // else
+        Instant now = Instant.now();
+        List<JWK> result = new ArrayList<>(current.getKeys());
+        for (Retired r : retired) {
+            if (r.until.isAfter(now)) {
+                result.add(r.jwk);
+            }
+        }
+        return new JWKSet(result);
+    }
+
+    /**
+     * @return the moment the first of the retired keys that are still published drops out of
+     *         {@link #getPublishedSet()}, empty if no retired key is published
+     */
+    public Optional<Instant> getPublishedUntil() {
+        Instant now = Instant.now();
+        // @formatter:off
+        return retired.stream()
+                .map(r -> r.until)
+                .filter(until -> until.isAfter(now))
+                .min(Instant::compareTo);
+        // @formatter:on
+    }
+
+    @Override
+    public String toString() {
+        return "KeyMaterial [type=" + type + ", version=" + version + ", keys=" + keysById.keySet() + "]";
+    }
+
+    /**
+     * A key that is no longer current, with the moment it should no longer be published
+     */
+    private static final class Retired {
+        private final JWK jwk;
+        private final Instant until;
+
+        Retired(JWK jwk, Instant until) {
+            this.jwk = jwk;
+            this.until = until;
+        }
+    }
+}
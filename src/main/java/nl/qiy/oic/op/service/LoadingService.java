@@ -27,6 +27,15 @@ package nl.qiy.oic.op.service;
  */
 @SuppressWarnings("ucd")
 public interface LoadingService {
-    // marker interface
 
+    /**
+     * Scans META-INF/services again for every service and replaces its providers with new instances. Until this is
+     * called, all threads share the providers that were found the first time. The typed configuration is made again
+     * from the new providers when it is next asked for, cached clients are forgotten.
+     */
+    static void reloadProviders() {
+        ProviderSnapshot.reloadAll();
+        ConfigurationService.INSTANCE.invalidate();
+        OAuthClientService.invalidateAll();
+    }
 }
@@ -19,7 +19,17 @@
 
 package nl.qiy.oic.op.service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import nl.qiy.oic.op.domain.OAuthClient;
 import nl.qiy.oic.op.service.spi.ClientStore;
@@ -27,16 +37,61 @@ import nl.qiy.oic.op.service.spi.ClientStore;
 /**
  * Enum singleton with convenience methods to make the calls static. Uses the service loader to load services that might
  * provide {@link OAuthClient}s. Other managment of clients might be added.
+ * <p>
+ * As client stores are typically backed by a database, the answers are cached (see {@link ExpiringCache}): clients and
+ * known origins for {@value #TTL_MINUTES} minutes, unknown client ids and origins for {@value #NEGATIVE_TTL_SECONDS}
+ * seconds. Call {@link #clientChanged(String)} when a client is updated.
+ * <p>
+ * Origins are first checked against an {@link OriginIndex} of all client origins, which is built in the background
+ * (every {@value #INDEX_REFRESH_SECONDS} seconds and after a client change) from {@link ClientStore#listOrigins()}. If
+ * every store can list its origins, CORS checks never reach the stores.
  *
  * @author Friso Vrolijken
  * @since 29 apr. 2016
  */
 public enum OAuthClientService implements LoadingService {
     INSTANCE;
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(OAuthClientService.class);
+    private static final long INDEX_REFRESH_SECONDS = 60;
+    private static final int MAX_ENTRIES = 10_000;
+    private static final long TTL_MINUTES = 5;
+    private static final long NEGATIVE_TTL_SECONDS = 30;
+
     private final FCFSServiceLoaderWrapper<ClientStore> loader = new FCFSServiceLoaderWrapper<>(ClientStore.class);
+    // @formatter:off
+    private final ExpiringCache<String, OAuthClient> clients = new ExpiringCache<>("clients",
+            clientId -> loader.get(clientDao -> clientDao.getById(clientId)).orElse(null),
+            MAX_ENTRIES, Duration.ofMinutes(TTL_MINUTES), Duration.ofSeconds(NEGATIVE_TTL_SECONDS));
+    // only TRUE is cached as a value, FALSE and unknown are both absences
+    private final ExpiringCache<String, Boolean> origins = new ExpiringCache<>("origins",
+            origin -> loader.get(clientDao -> clientDao.existstOrigin(origin))
+                    .filter(Boolean.TRUE::equals)
+                    .orElse(null),
+            MAX_ENTRIES, Duration.ofMinutes(TTL_MINUTES), Duration.ofSeconds(NEGATIVE_TTL_SECONDS));
+    // @formatter:on
+    /**
+     * Null until it is first built
+     */
+    private volatile OriginIndex originIndex;
+    private final ScheduledExecutorService indexer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread result = new Thread(r, "origin-index");
+        result.setDaemon(true);
+        return result;
+    });
+
+    private OAuthClientService() {
+        indexer.scheduleWithFixedDelay(this::refreshOriginIndex, 0, INDEX_REFRESH_SECONDS, TimeUnit.SECONDS);
+    }
 
     public static Optional<OAuthClient> getById(String clientId) {
-        return INSTANCE.loader.get(clientDao -> clientDao.getById(clientId));
+        if (clientId == null) {
+            // the cache can't hold null keys, let the client store decide
+            return INSTANCE.loader.get(clientDao -> clientDao.getById(null));
+        }
+        return Optional.ofNullable(INSTANCE.clients.get(clientId));
     }
 
     /**
@@ -48,6 +103,81 @@ public enum OAuthClientService implements LoadingService {
      * @return see description
      */
     public static Boolean existsOrigin(String origin) {
-        return INSTANCE.loader.get(clientDao -> clientDao.existstOrigin(origin)).orElse(Boolean.FALSE);
+        if (origin == null) {
+            return Boolean.FALSE;
+        }
+        OriginIndex index = INSTANCE.originIndex;
+        if (index != null) {
+            if (index.matches(origin)) {
+                return Boolean.TRUE;
+            }
+            if (index.isComplete()) {
+                return Boolean.FALSE;
+            }
+        }
+        return INSTANCE.origins.get(origin) == null ? Boolean.FALSE : Boolean.TRUE;
+    }
+
+    /**
+     * Makes sure the next request sees a client that was added, changed or removed. As the client's origins may have
+     * changed as well, all origins are looked up again.
+     * 
+     * @param clientId
+     *            the client's id
+     */
+    public static void clientChanged(String clientId) {
+        INSTANCE.clients.invalidate(clientId);
+        INSTANCE.origins.invalidateAll();
+        INSTANCE.indexer.execute(INSTANCE::refreshOriginIndex);
+    }
+
+    /**
+     * Builds the origin index from all client stores. Keeps the old one if a store fails.
+     * 
+     * @return the new index, or the old one
+     */
+    OriginIndex refreshOriginIndex() {
+        List<String> all = new ArrayList<>();
+        boolean complete = true;
+        try {
+            for (ClientStore store : loader) {
+                Collection<String> listed = store.listOrigins();
+                if (listed == null) {
+                    complete = false;
+                } else {
+                    all.addAll(listed);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Error while listing the origins, keeping {}", originIndex, e);
+            return originIndex;
+        }
+        OriginIndex result = OriginIndex.of(all, complete);
+        originIndex = result;
+        LOGGER.debug("new origin index {}", result);
+        return result;
+    }
+
+    /**
+     * Forgets all cached clients and origins and rebuilds the origin index
+     */
+    public static void invalidateAll() {
+        INSTANCE.clients.invalidateAll();
+        INSTANCE.origins.invalidateAll();
+        INSTANCE.indexer.execute(INSTANCE::refreshOriginIndex);
+    }
+
+    /**
+     * @return the counters of the client cache
+     */
+    public static CacheStats getClientCacheStats() {
+        return INSTANCE.clients.stats();
+    }
+
+    /**
+     * @return the counters of the origin cache
+     */
+    public static CacheStats getOriginCacheStats() {
+        return INSTANCE.origins.stats();
     }
 }
@@ -82,6 +82,19 @@ public enum OAuthUserService implements LoadingService {
         return INSTANCE.loader.get(usrSrv -> usrSrv.getBearer(bearerToken)).orElse(null);
     }
 
+    /**
+     * Gets the UserInfo response for the user that is associated with the bearerToken, stored by
+     * {@link #addBearer(String, IDToken)}
+     * 
+     * @param bearerToken
+     *            given bearerToken
+     * @return the user's claims as JSON (UTF-8), null if the token is unknown
+     * @see UserSessionManager#getUserInfo(String)
+     */
+    public static byte[] getUserInfo(String bearerToken) {
+        return INSTANCE.loader.get(usrSrv -> usrSrv.getUserInfo(bearerToken)).orElse(null);
+    }
+
     /**
      * Store a idToken under key of bearerToken so that it can be retrieved by {@link #getBearer(String)}
      * 
@@ -97,4 +110,16 @@ public enum OAuthUserService implements LoadingService {
                 .orElseThrow(IllegalStateException::new);
     }
 
+    /**
+     * Returns true iff any {@link UserSessionManager} knows the self-contained access token to be revoked
+     * 
+     * @param tokenId
+     *            the id (jti) of the token
+     * @return see description
+     * @see UserSessionManager#isRevoked(String)
+     */
+    public static boolean isRevoked(String tokenId) {
+        return INSTANCE.loader.get(usrSrv -> usrSrv.isRevoked(tokenId) ? Boolean.TRUE : null).isPresent();
+    }
+
 }
@@ -0,0 +1,494 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import nl.qiy.oic.op.domain.IDToken;
+import nl.qiy.oic.op.service.spi.UserSessionManager;
+
+/**
+ * A bearer token store like {@link BearerStore} that keeps its tokens outside of the heap, for
+ * {@link UserSessionManager} implementations that hold so many live tokens that the garbage collector suffers from
+ * them.
+ * <p>
+ * The store is a hash table of fixed-width slots in direct {@link ByteBuffer}s, or in a memory-mapped file when a
+ * {@link Path} is given. A slot holds the first 16 bytes of the SHA-256 digest of the access token, the moment it
+ * expires and the token's user info (see {@link IDToken#getUserInfo()}), which is all the UserInfo endpoint needs. So
+ * there is no IDToken to get back: a {@link UserSessionManager} that keeps its tokens here answers
+ * {@link UserSessionManager#getUserInfo(String)} from {@link #getUserInfo(String)}, and null from
+ * {@link UserSessionManager#getBearer(String)}.
+ * <p>
+ * The slots have room for a user info of a fixed size. {@link #put(String, IDToken)} refuses a larger one with an
+ * {@link IllegalArgumentException}; choose the size for the largest claim sets, or let addBearer return null on that
+ * exception when a next UserSessionManager can keep the token.
+ * <p>
+ * The table is divided in segments, each with its own lock. A token may be in any of 16 slots from where its digest
+ * points; when those are taken by live tokens, the one that expires first is evicted. Expired slots are simply reused.
+ * <p>
+ * A mapped file keeps the table when the process stops: a store opened on the same file with the same sizes gives the
+ * tokens that are still valid. Every slot has a checksum, so one that was half written when the machine went down is
+ * dropped instead of given. The operating system writes the file when it sees fit, {@link #flush()} makes it do so now.
+ * Expiry is done by the wall clock, as it has to hold across restarts.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+public final class OffHeapBearerStore {
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapBearerStore.class);
+    private static final long MAGIC = 0x4f50_4245_4152_4552L; // "OPBEARER"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER = 64;
+    private static final int MAX_SEGMENT_BYTES = 1 << 30;
+    /**
+     * The number of slots a token may be in
+     */
+    static final int WINDOW = 16;
+
+    // @formatter:off
+    private static final int EXPIRES = 0;   // long, epoch millis, 0 for an empty slot
+    private static final int DIGEST = 8;    // 2 longs
+    private static final int LENGTH = 24;   // int, of the user info
+    private static final int CHECKSUM = 28; // int, CRC32 of the bytes before it and of the user info
+    private static final int VALUE = 32;
+    // @formatter:on
+
+    private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final int slotMask;
+    private final int slotSize;
+    private final int maxUserInfoSize;
+    private final long lifetime;
+    private final Long expiresIn;
+    private final LongSupplier clock;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructor for an OffHeapBearerStore in direct memory, which takes about
+     * {@code maxSize * (maxUserInfoSize + 32)} bytes, up to twice that as the table size is a power of two
+     *
+     * @param lifetime
+     *            how long a token is valid, in whole seconds as that is what the token response tells
+     * @param maxSize
+     *            the number of tokens to make room for
+     * @param maxUserInfoSize
+     *            the largest user info to store, in bytes
+     */
+    public OffHeapBearerStore(Duration lifetime, int maxSize, int maxUserInfoSize) {
+        this(lifetime, maxSize, maxUserInfoSize, null, Runtime.getRuntime().availableProcessors() * 4,
+                System::currentTimeMillis);
+    }
+
+    /**
+     * Constructor for an OffHeapBearerStore in a memory-mapped file. If the file holds a table of the same sizes, the
+     * tokens in it that are still valid are given again, otherwise it is emptied.
+     *
+     * @param lifetime
+     *            how long a token is valid, in whole seconds as that is what the token response tells
+     * @param maxSize
+     *            the number of tokens to make room for
+     * @param maxUserInfoSize
+     *            the largest user info to store, in bytes
+     * @param file
+     *            the file to keep the table in
+     * @throws UncheckedIOException
+     *             if the file can't be created, read or mapped
+     */
+    public OffHeapBearerStore(Duration lifetime, int maxSize, int maxUserInfoSize, Path file) {
+        this(lifetime, maxSize, maxUserInfoSize, file, Runtime.getRuntime().availableProcessors() * 4,
+                System::currentTimeMillis);
+    }
+
+    /**
+     * Constructor for OffHeapBearerStore with a number of segments and a clock giving epoch millis, for testing
+     */
+    OffHeapBearerStore(Duration lifetime, int maxSize, int maxUserInfoSize, Path file, int segmentCount,
+            LongSupplier clock) {
+        super();
+        if (lifetime.getSeconds() <= 0 || lifetime.getNano() != 0) {
+            throw new IllegalArgumentException("lifetime must be a positive number of seconds: " + lifetime);
+        }
+        if (maxSize <= 0 || maxUserInfoSize <= 0) {
+            throw new IllegalArgumentException("sizes must be positive: " + maxSize + ", " + maxUserInfoSize);
+        }
+        this.slotSize = (VALUE + maxUserInfoSize + 7) & ~7;
+        if (slotSize * (long) WINDOW > MAX_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("maxUserInfoSize too large: " + maxUserInfoSize);
+        }
+        // room for an eighth more than asked, so the windows aren't all full
+        long slots = Long.highestOneBit(maxSize);
+        while (slots < maxSize + maxSize / 8L) {
+            slots *= 2;
+        }
+        slots = Math.max(slots, WINDOW);
+        long count = Integer.highestOneBit(Math.max(1, segmentCount));
+        while (slots / count * slotSize > MAX_SEGMENT_BYTES) {
+            count *= 2;
+        }
+        count = Math.min(count, slots / WINDOW);
+        int perSegment = (int) (slots / count);
+
+        this.segments = new Segment[(int) count];
+        this.segmentMask = (int) count - 1;
+        this.slotMask = perSegment - 1;
+        this.maxUserInfoSize = maxUserInfoSize;
+        this.lifetime = lifetime.toMillis();
+        this.expiresIn = Long.valueOf(lifetime.getSeconds());
+        this.clock = clock;
+        if (file == null) {
+            for (int i = 0; i < count; i++) {
+                segments[i] = new Segment(ByteBuffer.allocateDirect(perSegment * slotSize));
+            }
+        } else {
+            try {
+                map(file, perSegment);
+            } catch (IOException e) {
+                throw new UncheckedIOException("could not map " + file, e);
+            }
+        }
+    }
+
+    private void map(Path file, int perSegment) throws IOException {
+        long segmentBytes = perSegment * (long) slotSize;
+        long size = FILE_HEADER + segments.length * segmentBytes;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_HEADER);
+            // @formatter:off
+            boolean reuse = channel.size() == size
+                    && header.getLong(0) == MAGIC
+                    && header.getInt(8) == VERSION
+                    && header.getInt(12) == slotSize
+                    && header.getInt(16) == perSegment
+                    && header.getInt(20) == segments.length;
+            // @formatter:on
+            if (!reuse) {
+                if (channel.size() > FILE_HEADER) {
+                    LOGGER.warn("{} does not hold a table of these sizes, starting empty", file);
+                }
+                // truncating and growing again zeroes the slots
+                channel.truncate(FILE_HEADER);
+                header.putLong(0, 0L);
+            }
+            for (int i = 0; i < segments.length; i++) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE,
+                        FILE_HEADER + i * segmentBytes, segmentBytes);
+                segments[i] = new Segment(buffer);
+            }
+            if (reuse) {
+                int live = load();
+                LOGGER.info("reloaded {} live bearer tokens from {}", live, file);
+            } else {
+                header.putInt(8, VERSION).putInt(12, slotSize).putInt(16, perSegment).putInt(20, segments.length);
+                header.putLong(0, MAGIC);
+            }
+        }
+    }
+
+    /**
+     * Empties the slots of a reloaded table that expired or that were not completely written
+     *
+     * @return the number of live tokens
+     */
+    private int load() {
+        long now = clock.getAsLong();
+        int result = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (int slot = 0; slot <= slotMask; slot++) {
+                    int offset = slot * slotSize;
+                    long expires = segment.buffer.getLong(offset + EXPIRES);
+                    if (expires == 0L) {
+                        continue;
+                    }
+                    if (now < expires && isIntact(segment.buffer, offset)) {
+                        segment.used++;
+                        result++;
+                    } else {
+                        clear(segment.buffer, offset);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stores a token, replacing the one with the same access token if there is one
+     *
+     * @param at
+     *            the access token
+     * @param idt
+     *            the user it was given for
+     * @return the number of seconds the token is valid, which is exactly how long {@link #getUserInfo(String)} will
+     *         give its user info
+     * @throws IllegalArgumentException
+     *             if the user info is larger than the maximum the store was made for
+     */
+    public Long put(String at, IDToken idt) {
+        byte[] userInfo = idt.getUserInfo();
+        if (userInfo.length > maxUserInfoSize) {
+            throw new IllegalArgumentException("user info of " + userInfo.length + " bytes exceeds the maximum of "
+                    + maxUserInfoSize);
+        }
+        long now = clock.getAsLong();
+        byte[] digest = digest(at);
+        long d0 = getLong(digest, 0);
+        long d1 = getLong(digest, 8);
+        Segment segment = segments[(int) (d0 >>> 32) & segmentMask];
+        boolean evicted = false;
+        synchronized (segment) {
+            ByteBuffer buffer = segment.buffer;
+            int same = -1;
+            int free = -1;
+            int oldest = -1;
+            long oldestExpires = Long.MAX_VALUE;
+            for (int i = 0; i < WINDOW && same < 0; i++) {
+                int offset = ((int) d0 + i & slotMask) * slotSize;
+                long expires = buffer.getLong(offset + EXPIRES);
+                if (expires != 0L && isKey(buffer, offset, d0, d1)) {
+                    same = offset;
+                } else if (free < 0 && now >= expires) {
+                    free = offset;
+                } else if (expires < oldestExpires) {
+                    oldest = offset;
+                    oldestExpires = expires;
+                }
+            }
+            int offset = same >= 0 ? same : free >= 0 ? free : oldest;
+            long expires = buffer.getLong(offset + EXPIRES);
+            if (expires == 0L) {
+                segment.used++;
+            } else if (offset == oldest) {
+                evicted = true;
+            }
+            write(buffer, offset, digest, now + lifetime, userInfo);
+        }
+        if (evicted) {
+            evictions.increment();
+        }
+        return expiresIn;
+    }
+
+    /**
+     * @param at
+     *            the access token
+     * @return the stored user info (JSON, UTF-8), null if there is none or it expired
+     */
+    public byte[] getUserInfo(String at) {
+        long now = clock.getAsLong();
+        byte[] digest = digest(at);
+        long d0 = getLong(digest, 0);
+        long d1 = getLong(digest, 8);
+        Segment segment = segments[(int) (d0 >>> 32) & segmentMask];
+        byte[] userInfo = null;
+        synchronized (segment) {
+            ByteBuffer buffer = segment.buffer;
+            int offset = find(buffer, d0, d1);
+            if (offset >= 0) {
+                if (now < buffer.getLong(offset + EXPIRES) && isIntact(buffer, offset)) {
+                    userInfo = new byte[buffer.getInt(offset + LENGTH)];
+                    buffer.position(offset + VALUE);
+                    buffer.get(userInfo);
+                    buffer.clear();
+                } else {
+                    clear(buffer, offset);
+                    segment.used--;
+                }
+            }
+        }
+        if (userInfo == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return userInfo;
+    }
+
+    /**
+     * Forgets a token, e.g. when it is revoked
+     *
+     * @param at
+     *            the access token
+     * @return whether the token was there
+     */
+    public boolean remove(String at) {
+        byte[] digest = digest(at);
+        long d0 = getLong(digest, 0);
+        long d1 = getLong(digest, 8);
+        Segment segment = segments[(int) (d0 >>> 32) & segmentMask];
+        synchronized (segment) {
+            int offset = find(segment.buffer, d0, d1);
+            if (offset < 0) {
+                return false;
+            }
+            clear(segment.buffer, offset);
+            segment.used--;
+            return true;
+        }
+    }
+
+    /**
+     * @return the number of tokens, including the expired ones whose slot wasn't reused yet
+     */
+    public int size() {
+        int result = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                result += segment.used;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the counters as they are now, there are no refreshes
+     */
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), 0L, evictions.sum(), size());
+    }
+
+    /**
+     * Writes the table to its file now, if it has one
+     */
+    public void flush() {
+        for (Segment segment : segments) {
+            if (segment.buffer instanceof MappedByteBuffer) {
+                synchronized (segment) {
+                    ((MappedByteBuffer) segment.buffer).force();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the offset of the slot holding the digest, -1 if there is none
+     */
+    private int find(ByteBuffer buffer, long d0, long d1) {
+        for (int i = 0; i < WINDOW; i++) {
+            int offset = ((int) d0 + i & slotMask) * slotSize;
+            if (buffer.getLong(offset + EXPIRES) != 0L && isKey(buffer, offset, d0, d1)) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isKey(ByteBuffer buffer, int offset, long d0, long d1) {
+        return buffer.getLong(offset + DIGEST) == d0 && buffer.getLong(offset + DIGEST + 8) == d1;
+    }
+
+    /**
+     * Writes a slot. It is emptied first and the checksum goes last, so a slot that was half written when the machine
+     * went down is never taken for a token.
+     */
+    private static void write(ByteBuffer buffer, int offset, byte[] digest, long expires, byte[] userInfo) {
+        buffer.putLong(offset + EXPIRES, 0L);
+        buffer.position(offset + DIGEST);
+        buffer.put(digest, 0, 16);
+        buffer.putInt(offset + LENGTH, userInfo.length);
+        buffer.position(offset + VALUE);
+        buffer.put(userInfo);
+        buffer.clear();
+        buffer.putLong(offset + EXPIRES, expires);
+        buffer.putInt(offset + CHECKSUM, checksum(buffer, offset, userInfo.length));
+    }
+
+    private static void clear(ByteBuffer buffer, int offset) {
+        buffer.putLong(offset + EXPIRES, 0L);
+        buffer.putLong(offset + DIGEST, 0L);
+        buffer.putLong(offset + DIGEST + 8, 0L);
+    }
+
+    private boolean isIntact(ByteBuffer buffer, int offset) {
+        int length = buffer.getInt(offset + LENGTH);
+        return length >= 0 && length <= maxUserInfoSize
+                && buffer.getInt(offset + CHECKSUM) == checksum(buffer, offset, length);
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        buffer.limit(offset + CHECKSUM).position(offset);
+        crc.update(buffer);
+        buffer.limit(offset + VALUE + length).position(offset + VALUE);
+        crc.update(buffer);
+        buffer.clear();
+        return (int) crc.getValue();
+    }
+
+    private static byte[] digest(String at) {
+        return DIGESTS.get().digest(at.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long getLong(byte[] bytes, int from) {
+        long result = 0;
+        for (int i = from; i < from + 8; i++) {
+            result = result << 8 | (bytes[i] & 0xff);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapBearerStore [segments=" + segments.length + ", slots=" + segments.length * (slotMask + 1L)
+                + ", " + stats() + "]";
+    }
+
+    /**
+     * A part of the table, guarded by the segment itself
+     */
+    private static final class Segment {
+        private final ByteBuffer buffer;
+        private int used = 0;
+
+        Segment(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+}
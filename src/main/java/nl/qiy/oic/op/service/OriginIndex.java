@@ -0,0 +1,195 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.service;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The origins (as in the HTTP header "Origin") of all clients, for CORS checks that don't need to ask the client
+ * stores. Origins are compared after normalizing: scheme and host in lower case, no default port and no trailing slash.
+ * An origin may have a wildcard as its first label, e.g. {@code https://*.example.com}, which matches every subdomain
+ * (at any depth) of example.com, but not example.com itself.
+ * <p>
+ * Instances are immutable, a new one is built when the clients change.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+final class OriginIndex {
+    private static final String WILDCARD = "*.";
+
+    private final Set<String> exact;
+    private final Set<String> wildcards;
+    private final boolean complete;
+
+    private OriginIndex(Set<String> exact, Set<String> wildcards, boolean complete) {
+        super();
+        this.exact = exact;
+        this.wildcards = wildcards;
+        this.complete = complete;
+    }
+
+    /**
+     * Builds an index. Origins that can't be parsed are ignored.
+     * 
+     * @param origins
+     *            the origins, may contain wildcards
+     * @param complete
+     *            whether these are all the origins there are; if not, an origin that isn't in the index may still be
+     *            allowed
+     * @return see description
+     */
+    static OriginIndex of(Collection<String> origins, boolean complete) {
+        Set<String> exact = new HashSet<>();
+        Set<String> wildcards = new HashSet<>();
+        for (String origin : origins) {
+            Origin parsed = Origin.parse(origin);
+            if (parsed == null) {
+                continue;
+            }
+            if (parsed.host.startsWith(WILDCARD)) {
+                wildcards.add(parsed.key(parsed.host.substring(WILDCARD.length())));
+            } else {
+                exact.add(parsed.key(parsed.host));
+            }
+        }
+        return new OriginIndex(exact, wildcards, complete);
+    }
+
+    /**
+     * @param origin
+     *            the value of the header "Origin"
+     * @return true if the origin is in the index
+     */
+    boolean matches(String origin) {
+        Origin parsed = Origin.parse(origin);
+        if (parsed == null || parsed.host.startsWith(WILDCARD)) {
+            return false;
+        }
+        if (exact.contains(parsed.key(parsed.host))) {
+            return true;
+        }
+        if (!wildcards.isEmpty()) {
+            String host = parsed.host;
+            for (int dot = host.indexOf('.'); dot >= 0; dot = host.indexOf('.', dot + 1)) {
+                if (wildcards.contains(parsed.key(host.substring(dot + 1)))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether an origin that doesn't match is known not to be allowed
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @param origin
+     *            an origin
+     * @return the origin as it is compared, null if it can't be parsed
+     */
+    static String normalize(String origin) {
+        Origin parsed = Origin.parse(origin);
+        return parsed == null ? null : parsed.key(parsed.host);
+    }
+
+    @Override
+    public String toString() {
+        return "OriginIndex [exact=" + exact.size() + ", wildcards=" + wildcards.size() + ", complete=" + complete
+                + "]";
+    }
+
+    /**
+     * scheme://host[:port], split up
+     */
+    private static final class Origin {
+        private final String scheme;
+        private final String host;
+        private final int port;
+
+        private Origin(String scheme, String host, int port) {
+            this.scheme = scheme;
+            this.host = host;
+            this.port = port;
+        }
+
+        private String key(String someHost) {
+            return port < 0 ? scheme + "://" + someHost : scheme + "://" + someHost + ':' + port;
+        }
+
+        private static Origin parse(String origin) {
+            if (origin == null) {
+                return null;
+            }
+            int sep = origin.indexOf("://");
+            if (sep <= 0) {
+                return null;
+            }
+            String scheme = origin.substring(0, sep).toLowerCase(Locale.ROOT);
+            int end = origin.endsWith("/") ? origin.length() - 1 : origin.length();
+            String authority = origin.substring(sep + 3, end);
+            if (authority.isEmpty() || authority.chars().anyMatch(c -> c == '/' || c == '?' || c == '#' || c == '@')) {
+                return null;
+            }
+            // the last colon, unless it's part of an IPv6 address
+            int colon = authority.lastIndexOf(':');
+            if (colon < authority.lastIndexOf(']')) {
+                colon = -1;
+            }
+            String host = (colon < 0 ? authority : authority.substring(0, colon)).toLowerCase(Locale.ROOT);
+            int port = -1;
+            if (colon >= 0) {
+                try {
+                    port = Integer.parseInt(authority.substring(colon + 1));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+                if (port < 0 || port > 0xffff) {
+                    return null;
+                }
+            }
+            if (host.isEmpty()) {
+                return null;
+            }
+            if (port == defaultPort(scheme)) {
+                port = -1;
+            }
+            return new Origin(scheme, host, port);
+        }
+
+        private static int defaultPort(String scheme) {
+            switch (scheme) {
+            case "http":
+                return 80;
+            case "https":
+                return 443;
+            default:
+                return -2;
+            }
+        }
+    }
+}
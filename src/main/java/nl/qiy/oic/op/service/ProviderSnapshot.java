@@ -0,0 +1,133 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.service;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import nl.qiy.oic.op.service.spi.ServiceProviderInterface;
+
+/**
+ * The service providers for one interface, in the order the {@link ServiceLoader} found them. The providers are loaded
+ * once and shared by all threads, so they must be thread safe. The array is never changed once it is published;
+ * {@link #reload()} replaces it as a whole. Callers read {@link #providers()} once and loop over it, which needs no
+ * locking and allocates nothing.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+final class ProviderSnapshot<T extends ServiceProviderInterface> implements Iterable<T> {
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProviderSnapshot.class);
+    /**
+     * All snapshots, so they can be reloaded at once
+     */
+    private static final List<ProviderSnapshot<?>> ALL = new CopyOnWriteArrayList<>();
+
+    private final Class<T> serviceInterface;
+    private volatile T[] providers;
+
+    /**
+     * Constructor for ProviderSnapshot, loads the providers
+     * 
+     * @param serviceInterface
+     *            the class that is loaded by the {@link ServiceLoader}
+     * @throws IllegalStateException
+     *             if there is no provider for the interface
+     */
+    ProviderSnapshot(Class<T> serviceInterface) {
+        super();
+        this.serviceInterface = serviceInterface;
+        this.providers = load(serviceInterface);
+        ALL.add(this);
+    }
+
+    /**
+     * @return the providers. The array is shared and must not be changed
+     */
+    T[] providers() {
+        return providers;
+    }
+
+    /**
+     * Scans META-INF/services again and replaces the providers with new instances. Threads that are using the old
+     * providers keep on using those until they ask again. Old providers that are {@link AutoCloseable} are closed, so
+     * they can stop their threads and release what they hold.
+     * 
+     * @throws IllegalStateException
+     *             if there is no provider for the interface anymore, in which case the old ones are kept
+     */
+    void reload() {
+        T[] old = providers;
+        providers = load(serviceInterface);
+        LOGGER.info("reloaded {}: {}", serviceInterface.getName(), Arrays.toString(providers));
+        for (T provider : old) {
+            if (provider instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) provider).close();
+                } catch (Exception e) {
+                    LOGGER.warn("Error while closing replaced provider {}", provider, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reloads every snapshot, see {@link #reload()}
+     */
+    static void reloadAll() {
+        ALL.forEach(ProviderSnapshot::reload);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return Collections.unmodifiableList(Arrays.asList(providers)).iterator();
+    }
+
+    private static <T extends ServiceProviderInterface> T[] load(Class<T> serviceInterface) {
+        List<T> result = new ArrayList<>();
+        for (T item : ServiceLoader.load(serviceInterface)) {
+            if (!item.isHealthy()) {
+                LOGGER.error("{} is reporting it's unhealthy", item.getClass());
+            }
+            result.add(item);
+        }
+        if (result.isEmpty()) {
+            String name = serviceInterface.getName();
+            throw new IllegalStateException(
+                    "No service found that implements " + name + ". Please check that file META-INF/services/" + name
+                            + " exists, is readable and has at least one implementing class in it's body");
+        }
+        @SuppressWarnings("unchecked")
+        T[] array = (T[]) Array.newInstance(serviceInterface, result.size());
+        return result.toArray(array);
+    }
+}
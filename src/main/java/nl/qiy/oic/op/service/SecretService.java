@@ -19,6 +19,18 @@
 
 package nl.qiy.oic.op.service;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.nimbusds.jose.jwk.JWKSet;
 
 import nl.qiy.oic.op.service.spi.SecretStore;
@@ -31,8 +43,17 @@ import nl.qiy.oic.op.service.spi.SecretStore;
  */
 public enum SecretService implements LoadingService {
     INSTANCE;
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SecretService.class);
 
     private final FCFSServiceLoaderWrapper<SecretStore> loader = new FCFSServiceLoaderWrapper<>(SecretStore.class);
+    /**
+     * The current key material per type. The reference is handed out, so readers see a rotation without asking again
+     */
+    private final ConcurrentMap<String, AtomicReference<KeyMaterial>> keyMaterial = new ConcurrentHashMap<>();
+    private final List<BiConsumer<KeyMaterial, KeyMaterial>> rotationListeners = new CopyOnWriteArrayList<>();
 
     /**
      * @param type
@@ -44,8 +65,87 @@ public enum SecretService implements LoadingService {
         // @formatter:off
         return INSTANCE
                 .loader
-                .get(s -> s.getJWKSet(type))
+                .get(type, s -> s.getJWKSet(type))
                 .orElseThrow(IllegalStateException::new);
         // @formatter:on
     }
+
+    /**
+     * Returns the current key material for the given type. The SecretStores are only asked the first time, after that
+     * the keys only change through {@link #announce(String, JWKSet, Duration)}.
+     * 
+     * @param type
+     *            one of idToken, userInfo or requestObject
+     * @return see description
+     */
+    public static KeyMaterial getKeyMaterial(String type) {
+        return reference(type).get();
+    }
+
+    /**
+     * Returns a supplier that always gives the current key material for the given type. Hot paths should keep this
+     * supplier, rather than calling {@link #getKeyMaterial(String)} each time; getting the keys is then a single
+     * volatile read.
+     * 
+     * @param type
+     *            one of idToken, userInfo or requestObject
+     * @return see description
+     */
+    public static Supplier<KeyMaterial> keyMaterial(String type) {
+        return reference(type)::get;
+    }
+
+    private static AtomicReference<KeyMaterial> reference(String type) {
+        AtomicReference<KeyMaterial> result = INSTANCE.keyMaterial.get(type);
+        if (result == null) {
+            result = INSTANCE.keyMaterial.computeIfAbsent(type,
+                    t -> new AtomicReference<>(KeyMaterial.of(t, getJWKSet(t))));
+        }
+        return result;
+    }
+
+    /**
+     * To be called by a {@link SecretStore} when it has new keys for the given type. Signing switches to the new keys
+     * at once, the keys that were replaced are still published (and can be used for verification) during the overlap
+     * window. That way relying parties that cached the key set can still validate tokens that were signed just before
+     * the switch.
+     * 
+     * @param type
+     *            one of idToken, userInfo or requestObject
+     * @param jwkSet
+     *            the new keys (both public and private)
+     * @param overlap
+     *            how long the replaced keys should still be published
+     * @return the new key material
+     */
+    public static KeyMaterial announce(String type, JWKSet jwkSet, Duration overlap) {
+        AtomicReference<KeyMaterial> ref = reference(type);
+        KeyMaterial old;
+        KeyMaterial result;
+        do {
+            old = ref.get();
+            result = old.next(jwkSet, overlap);
+        } while (!ref.compareAndSet(old, result));
+        LOGGER.info("rotated keys for {} from {} to {}", type, old, result);
+
+        for (BiConsumer<KeyMaterial, KeyMaterial> listener : INSTANCE.rotationListeners) {
+            try {
+                listener.accept(old, result);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Error while notifying {} of a key rotation", listener, e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Registers a listener that is called (on the thread that announced the keys) after every rotation, with the old
+     * and the new key material. Useful to build caches on top of the keys ahead of traffic.
+     * 
+     * @param listener
+     *            the listener
+     */
+    public static void addRotationListener(BiConsumer<KeyMaterial, KeyMaterial> listener) {
+        INSTANCE.rotationListeners.add(listener);
+    }
 }
@@ -0,0 +1,246 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import nl.qiy.oic.op.service.spi.Configuration;
+
+/**
+ * {@link Configuration} that reads a JSON object from a file and reads it again when the file changes. The file is
+ * watched by a daemon thread, so requests never wait for the parsing. A file that can't be parsed, isn't a JSON object
+ * or lacks an issuer or base URI that is a URI is logged and ignored; the values that were read before stay in use.
+ * After each change {@link ConfigurationService#changed()} is called, so readers of
+ * {@link ConfigurationService#current()} get the new values and the change listeners can rebuild their caches. If the
+ * service doesn't accept them, the old values are kept as well.
+ * <p>
+ * The watching thread stops when the instance is closed, which {@link LoadingService#reloadProviders()} does for the
+ * providers it replaces.
+ * <p>
+ * To use it, add this class' name to META-INF/services/nl.qiy.oic.op.service.spi.Configuration and set the system
+ * property {@value #FILE_PROPERTY} to the path of the file, or register a subclass that passes the path to
+ * {@link #WatchedFileConfiguration(Path)}.
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+public class WatchedFileConfiguration implements Configuration, Closeable {
+    /**
+     * The system property with the path of the file for the default constructor
+     */
+    public static final String FILE_PROPERTY = "nl.qiy.oic.op.config.file";
+    /**
+     * Standard SLF4J Logger
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(WatchedFileConfiguration.class);
+    /**
+     * Editors tend to write a file in more than one step, wait this long for the events to settle
+     */
+    private static final long SETTLE_MILLIS = 50;
+    private static final ObjectReader READER = new ObjectMapper().readerFor(Map.class);
+
+    private final Path file;
+    private final WatchService watcher;
+    /**
+     * The values as last read, never changed once published
+     */
+    private volatile Map<String, Object> values;
+
+    /**
+     * Constructor for WatchedFileConfiguration, reads the file named by the system property {@value #FILE_PROPERTY}
+     * 
+     * @throws IllegalStateException
+     *             if the property isn't set or the file can't be read
+     */
+    public WatchedFileConfiguration() {
+        this(Paths.get(requireProperty()));
+    }
+
+    /**
+     * Constructor for WatchedFileConfiguration, reads the file and starts watching it
+     * 
+     * @param file
+     *            the JSON file
+     * @throws IllegalStateException
+     *             if the file can't be read
+     */
+    public WatchedFileConfiguration(Path file) {
+        super();
+        this.file = file.toAbsolutePath();
+        this.values = read(this.file);
+        try {
+            this.watcher = this.file.getFileSystem().newWatchService();
+            // the directory is watched, as the file itself may be replaced
+            this.file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't watch " + this.file, e);
+        }
+        Thread thread = new Thread(this::watch, "config-watch-" + this.file.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static String requireProperty() {
+        String result = System.getProperty(FILE_PROPERTY);
+        if (result == null) {
+            throw new IllegalStateException("System property " + FILE_PROPERTY + " is not set");
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T get(String key) {
+        return (T) values.get(key);
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return Files.isReadable(file);
+    }
+
+    /**
+     * Reads the file again. Called by the watching thread, but may also be called directly.
+     * 
+     * @return true if the values have changed, false if they're the same or the file wasn't valid
+     */
+    public boolean reload() {
+        Map<String, Object> result;
+        try {
+            result = read(file);
+        } catch (IllegalStateException e) {
+            LOGGER.error("Ignoring the new contents of {}", file, e);
+            return false;
+        }
+        synchronized (this) {
+            Map<String, Object> previous = values;
+            if (result.equals(previous)) {
+                return false;
+            }
+            values = result;
+            LOGGER.info("Read new configuration from {}", file);
+            try {
+                ConfigurationService.changed();
+            } catch (IllegalStateException e) {
+                // the service kept its old snapshot, so should the lookups by key
+                values = previous;
+                LOGGER.error("Configuration from {} was not accepted, keeping the old values", file, e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops watching the file
+     */
+    @Override
+    public void close() throws IOException {
+        watcher.close();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean ours = concernsFile(key);
+                // drain what follows shortly after, so one save gives one reload
+                while ((key = watcher.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    ours |= concernsFile(key);
+                }
+                if (ours) {
+                    reload();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            LOGGER.debug("Stopped watching {}", file);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean concernsFile(WatchKey key) {
+        boolean result = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            Object context = event.context();
+            result |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || (context instanceof Path && file.getFileName().equals(context));
+        }
+        key.reset();
+        return result;
+    }
+
+    /**
+     * Reads and validates the file
+     * 
+     * @throws IllegalStateException
+     *             if the file can't be read or isn't valid
+     */
+    private static Map<String, Object> read(Path file) {
+        Map<String, Object> result;
+        try (InputStream in = Files.newInputStream(file)) {
+            result = READER.readValue(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't read configuration from " + file, e);
+        }
+        if (result == null) {
+            throw new IllegalStateException(file + " doesn't hold a JSON object");
+        }
+        for (String key : new String[] { ISS, BASE_URI }) {
+            Object value = result.get(key);
+            if (value == null) {
+                throw new IllegalStateException(file + " lacks " + key);
+            }
+            try {
+                URI.create(value.toString());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException(key + " in " + file + " is not a URI", e);
+            }
+        }
+        return Collections.unmodifiableMap(new LinkedHashMap<>(result));
+    }
+
+    @Override
+    public String toString() {
+        return "WatchedFileConfiguration [file=" + file + "]";
+    }
+}
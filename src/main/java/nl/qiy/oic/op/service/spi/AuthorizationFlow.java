@@ -36,6 +36,10 @@ public interface AuthorizationFlow extends ServiceProviderInterface {
 
     /**
      * This is called when the user needs to authenticate. The caller should have checked that.
+     * <p>
+     * To get back to the request when the flow is done, either park {@link AuthenticationRequest#toBytes()} in the
+     * session, or send {@link AuthenticationRequest#seal(java.time.Duration)} along with the flow. The latter needs no
+     * shared session state between nodes.
      * 
      * @param inputs
      *            the user's input, will be used to construct the callback URI
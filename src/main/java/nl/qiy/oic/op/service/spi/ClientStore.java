@@ -19,6 +19,8 @@
 
 package nl.qiy.oic.op.service.spi;
 
+import java.util.Collection;
+
 import nl.qiy.oic.op.domain.OAuthClient;
 
 /**
@@ -46,4 +48,18 @@ public interface ClientStore extends ServiceProviderInterface {
      * @return see description
      */
     Boolean existstOrigin(String origin);
+
+    /**
+     * Lists the origins of all clients in this store, so CORS checks can be done from memory. An origin is
+     * scheme://host[:port], the first label of the host may be a wildcard ("https://*.example.com"). This is called
+     * periodically from a background thread.
+     * <p>
+     * The default implementation returns null, meaning this store can't list its origins, in which case
+     * {@link #existstOrigin(String)} is asked for origins that aren't listed by other stores.
+     * 
+     * @return see description
+     */
+    default Collection<String> listOrigins() {
+        return null;
+    }
 }
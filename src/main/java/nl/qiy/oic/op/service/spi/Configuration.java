@@ -28,6 +28,9 @@ package nl.qiy.oic.op.service.spi;
 public interface Configuration extends ServiceProviderInterface {
     static final String ISS = "iss";
     static final String BASE_URI = "base-uri";
+    static final String REQUEST_CACHE_SIZE = "request-cache-size";
+    static final String ACCESS_TOKEN_FORMAT = "access-token-format";
+    static final String ACCESS_TOKEN_LIFETIME = "access-token-lifetime";
 
     <T> T get(String key);
 
@@ -30,10 +30,12 @@ import com.nimbusds.jose.jwk.JWKSet;
 public interface SecretStore extends ServiceProviderInterface {
 
     /**
-     * returns a complete JWK description (both public and private)
+     * returns a complete JWK description (both public and private). This is only called once per type; to rotate keys
+     * later on, pass the new keys to {@link nl.qiy.oic.op.service.SecretService#announce(String, JWKSet, java.time.Duration)}.
      * 
      * @param type
-     *            one of idToken, userInfo or requestObject
+     *            one of idToken, userInfo or requestObject. Or sealedRequest, a symmetric key that is only needed when
+     *            the authorization flow uses {@link nl.qiy.oic.op.api.AuthenticationRequest#seal(java.time.Duration)}
      * @return see description
      */
     JWKSet getJWKSet(String type);
@@ -20,7 +20,8 @@
 package nl.qiy.oic.op.service.spi;
 
 /**
- * Marker interface
+ * Marker interface. The services load one instance of each provider, which is shared by all threads; implementations
+ * must be thread safe.
  *
  * @author Friso Vrolijken
  * @since 2 mei 2016
@@ -69,6 +69,20 @@ public interface UserSessionManager extends ServiceProviderInterface {
      */
     public IDToken getBearer(String bearerKey);
 
+    /**
+     * Retrieve the UserInfo response of a stored user. Implementations that keep only that response, not the user,
+     * override this, see {@link nl.qiy.oic.op.service.OffHeapBearerStore}.
+     * 
+     * @param bearerKey
+     *            the key used in storage
+     * @return the user's claims as JSON (UTF-8), by default those of {@link #getBearer(String)}; null if there is no
+     *         such user
+     */
+    public default byte[] getUserInfo(String bearerKey) {
+        IDToken idToken = getBearer(bearerKey);
+        return idToken == null ? null : idToken.getUserInfo();
+    }
+
     /**
      * Store a user using the key
      * 
@@ -79,4 +93,16 @@ public interface UserSessionManager extends ServiceProviderInterface {
      * @return the number of seconds the bearer token will remain valid
      */
     public Long addBearer(String at, IDToken idt);
+
+    /**
+     * Tells whether a self-contained access token was revoked. Those tokens are not stored by
+     * {@link #addBearer(String, IDToken)}, so this is the only thing the UserInfo endpoint asks about them.
+     * 
+     * @param tokenId
+     *            the id (jti) of the token, see {@link nl.qiy.oic.op.domain.AccessToken#getId()}
+     * @return true if the token was revoked, by default none are
+     */
+    public default boolean isRevoked(String tokenId) {
+        return false;
+    }
 }
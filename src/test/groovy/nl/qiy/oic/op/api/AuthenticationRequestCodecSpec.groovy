@@ -0,0 +1,133 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.api
+
+import javax.validation.Validation
+import javax.ws.rs.core.MultivaluedHashMap
+
+import nl.qiy.oic.op.api.param.Flow
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class AuthenticationRequestCodecSpec extends Specification {
+    @Shared validator = Validation.buildDefaultValidatorFactory().getValidator()
+
+    static final FIELDS = ["scope", "responseType", "clientId", "redirectUri", "state", "responseMode", "nonce",
+        "display", "prompt", "maxAge", "uiLocales", "idTokenHint", "loginHint", "acrValues"]
+
+    def request(Map<String, String> values) {
+        def params = new MultivaluedHashMap<String, String>()
+        params.putSingle("client_id", "A")
+        params.putSingle("redirect_uri", "https://rp.example.com/callback")
+        values.each { k, v -> params.putSingle(k, v) }
+        return new AuthenticationRequest(params, validator)
+    }
+
+    def legacyBytes(Object o) {
+        def bos = new ByteArrayOutputStream()
+        new ObjectOutputStream(bos).withCloseable { it.writeObject(o) }
+        return bos.toByteArray()
+    }
+
+    @Unroll
+    def "read back what was written for #values"() {
+        given:
+        def original = request(values)
+
+        when:
+        def copy = AuthenticationRequest.fromBytes(original.toBytes())
+
+        then:
+        FIELDS.every { copy[it] == original[it] }
+        copy.flow == original.flow
+        copy.client != null
+
+        where:
+        values << [
+            [scope: "openid", response_type: "code"],
+            [scope: "openid profile email", response_type: "id_token token", state: "xyz", nonce: "n-0S6",
+                response_mode: "form_post", display: "touch", prompt: "login consent", max_age: "3600",
+                ui_locales: "nl-NL nl en", id_token_hint: "eyJ", login_hint: "jan@example.com",
+                acr_values: "urn:a urn:b"],
+            [scope: "openid", response_type: "code id_token", max_age: "-5", state: "Zoë €"]
+        ]
+    }
+
+    def "derive the flow when reading"() {
+        expect:
+        AuthenticationRequest.fromBytes(request([scope: "openid", response_type: "code id_token"]).toBytes()).flow ==
+                Flow.HYBRID
+    }
+
+    def "read requests that were written with Java serialization"() {
+        given:
+        def original = request([scope: "openid email", response_type: "id_token", nonce: "n", prompt: "none",
+            ui_locales: "nl"])
+
+        when:
+        def copy = AuthenticationRequest.fromBytes(legacyBytes(original))
+
+        then:
+        FIELDS.every { copy[it] == original[it] }
+    }
+
+    def "write less than Java serialization did"() {
+        given:
+        def original = request([scope: "openid profile", response_type: "id_token token", state: "af0ifjsldkj",
+            nonce: "n-0S6_WzA2Mj", ui_locales: "nl-NL nl en"])
+
+        expect:
+        original.toBytes().length * 5 < legacyBytes(original).length
+    }
+
+    def "refuse serialized objects that are not part of a request"() {
+        when:
+        AuthenticationRequest.fromBytes(legacyBytes(new Date()))
+
+        then:
+        thrown(InputException)
+    }
+
+    /**
+     * A request without ui_locales, hints and acr_values ends with their counts, the given varint replaces the first
+     */
+    def withLocaleCount(List<Integer> varint) {
+        def bytes = request([scope: "openid", response_type: "code"]).toBytes() as List
+        return bytes[0..-3] + varint + [0]
+    }
+
+    @Unroll
+    def "refuse corrupt input #description"() {
+        when:
+        AuthenticationRequest.fromBytes(input as byte[])
+
+        then:
+        thrown(InputException)
+
+        where:
+        description     | input
+        "empty"         | []
+        "unknown magic" | [1, 2, 3]
+        "truncated"     | request([scope: "openid", response_type: "code"]).toBytes()[0..9]
+        "trailing"      | (request([scope: "openid", response_type: "code"]).toBytes() as List) + [0]
+        "negative"      | withLocaleCount([-1, -1, -1, -1, 15])
+        "huge count"    | withLocaleCount([-1, -1, -1, -1, 7])
+    }
+}
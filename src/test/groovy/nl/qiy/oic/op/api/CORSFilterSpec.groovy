@@ -0,0 +1,127 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.api
+
+import javax.servlet.FilterChain
+import javax.servlet.FilterConfig
+import javax.servlet.ServletException
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+
+import nl.qiy.oic.op.service.OAuthClientService
+import spock.lang.Specification
+
+class CORSFilterSpec extends Specification {
+    def filter = new CORSFilter()
+    def chain = Mock(FilterChain)
+    def response = Mock(HttpServletResponse)
+
+    def setup() {
+        OAuthClientService.INSTANCE.refreshOriginIndex()
+    }
+
+    def init(Map params) {
+        filter.init(Stub(FilterConfig) { getInitParameter(_) >> { String name -> params[name] } })
+    }
+
+    def request(String method, String origin, String requestMethod = null) {
+        return Stub(HttpServletRequest) {
+            getMethod() >> method
+            getHeader("Origin") >> origin
+            getHeader("Access-Control-Request-Method") >> requestMethod
+        }
+    }
+
+    def "answer a preflight request without going down the chain"() {
+        given:
+        init([:])
+
+        when:
+        filter.doFilter(request("OPTIONS", "https://rp.example.com", "POST"), response, chain)
+
+        then:
+        1 * response.setHeader("Access-Control-Allow-Origin", "https://rp.example.com")
+        1 * response.setHeader("Access-Control-Max-Age", "600")
+        1 * response.setHeader("Vary", "Origin")
+        1 * response.setStatus(204)
+        0 * chain._
+    }
+
+    def "use the configured max age"() {
+        given:
+        init([maxAge: "3600"])
+
+        when:
+        filter.doFilter(request("OPTIONS", "https://rp.example.com", "GET"), response, chain)
+
+        then:
+        1 * response.setHeader("Access-Control-Max-Age", "3600")
+    }
+
+    def "refuse a max age that isn't a number"() {
+        when:
+        init([maxAge: "an hour"])
+
+        then:
+        thrown(ServletException)
+    }
+
+    def "answer a preflight request from an unknown origin without the allow headers"() {
+        given:
+        init([:])
+
+        when:
+        filter.doFilter(request("OPTIONS", "https://evil.example.com", "POST"), response, chain)
+
+        then:
+        0 * response.setHeader("Access-Control-Allow-Origin", _)
+        1 * response.setStatus(204)
+        0 * chain._
+    }
+
+    def "pass other requests down the chain without the max age"() {
+        given:
+        init([:])
+        def req = request(method, "https://rp.example.com")
+
+        when:
+        filter.doFilter(req, response, chain)
+
+        then:
+        1 * response.setHeader("Access-Control-Allow-Origin", "https://rp.example.com")
+        0 * response.setHeader("Access-Control-Max-Age", _)
+        0 * response.setStatus(_)
+        1 * chain.doFilter(req, response)
+
+        where:
+        method << ["GET", "OPTIONS"]
+    }
+
+    def "don't vary on the origin when all origins are allowed"() {
+        given:
+        init([allowAll: "true"])
+
+        when:
+        filter.doFilter(request("OPTIONS", "https://evil.example.com", "POST"), response, chain)
+
+        then:
+        1 * response.setHeader("Access-Control-Allow-Origin", "*")
+        0 * response.setHeader("Vary", _)
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.api
+
+import javax.validation.Validation
+import javax.ws.rs.core.MultivaluedHashMap
+
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class CompiledValidationSpec extends Specification {
+    @Shared factory = Validation.buildDefaultValidatorFactory()
+    @Shared compiled = CompiledValidation.of(factory)
+
+    def params(Map overrides) {
+        def result = new MultivaluedHashMap<String, String>()
+        ([scope: "openid", response_type: "code", client_id: "A", redirect_uri: "http://a.nl"] + overrides).each { k, v ->
+            if (v != null) {
+                result.putSingle(k, v)
+            }
+        }
+        return result
+    }
+
+    def "know the constraints of AuthenticationRequest"() {
+        expect:
+        compiled != null
+    }
+
+    @Unroll
+    def "give the same description as the validator for #overrides"() {
+        when:
+        new AuthenticationRequest(params(overrides), factory.validator)
+
+        then:
+        def expected = thrown(InputException)
+
+        when:
+        new AuthenticationRequest(params(overrides), compiled)
+
+        then:
+        def actual = thrown(InputException)
+        actual.errorDescription == expected.errorDescription
+        actual.error == expected.error
+
+        where:
+        overrides << [[client_id: null], [client_id: "a b"], [client_id: "a\tb"], [response_type: null]]
+    }
+
+    def "accept what the validator accepts"() {
+        when:
+        def request = new AuthenticationRequest(params([client_id: "B"]), compiled)
+
+        then:
+        request.clientId == "B"
+    }
+}
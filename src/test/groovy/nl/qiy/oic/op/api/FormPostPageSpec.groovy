@@ -0,0 +1,71 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.api
+
+import java.nio.charset.StandardCharsets
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class FormPostPageSpec extends Specification {
+
+    def render(String action, Map<String, String> params) {
+        def out = new ByteArrayOutputStream()
+        new FormPostPage(URI.create(action), params).write(out)
+        return new String(out.toByteArray(), StandardCharsets.UTF_8)
+    }
+
+    def "write the page as String.format did for plain values"() {
+        given:
+        def params = new LinkedHashMap([state: "xyz", id_token: "eyJ.eyJ.sig"])
+        def inputs = params.collect { k, v -> String.format("<input type=\"hidden\" name=\"%s\" value=\"%s\"/>", k, v) }
+
+        expect:
+        render("https://rp.example.com/cb", params) == String.format("<html><head><title>Submit This Form</title></head>"
+                + "<body onload=\"javascript:document.forms[0].submit()\">"
+                + "<form method=\"post\" action=\"%s\">%s</form></body></html>", "https://rp.example.com/cb",
+                inputs.join(""))
+    }
+
+    @Unroll
+    def "escape [#value] in attributes"() {
+        expect:
+        render("https://rp.example.com/cb", [state: value]).contains("value=\"" + expected + "\"")
+
+        where:
+        value                       | expected
+        "\"/><script>x()</script>"  | "&quot;/&gt;&lt;script&gt;x()&lt;/script&gt;"
+        "a&b'c"                     | "a&amp;b&#39;c"
+        "Zoë €𝄞"                    | "Zoë €𝄞"
+    }
+
+    def "escape the action"() {
+        expect:
+        render("https://rp.example.com/cb?a=1&b=2", [:]).contains("action=\"https://rp.example.com/cb?a=1&amp;b=2\"")
+    }
+
+    def "reuse the buffer for the next page"() {
+        given:
+        def big = "x" * 5000
+
+        expect:
+        render("https://rp.example.com/cb", [state: big]).contains(big)
+        render("https://rp.example.com/cb", [state: "y"]).endsWith("value=\"y\"/></form></body></html>")
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.api
+
+import javax.validation.Validation
+import javax.ws.rs.core.MultivaluedHashMap
+
+import nl.qiy.oic.op.api.param.Flow
+import nl.qiy.oic.op.api.param.ResponseMode
+import spock.lang.Shared
+import spock.lang.Specification
+
+class InternedValuesSpec extends Specification {
+    @Shared validator = Validation.buildDefaultValidatorFactory().getValidator()
+
+    def request(Map<String, String> values) {
+        def params = new MultivaluedHashMap<String, String>()
+        params.putSingle("client_id", "A")
+        params.putSingle("redirect_uri", "https://rp.example.com/callback")
+        values.each { k, v -> params.putSingle(k, v) }
+        return new AuthenticationRequest(params, validator)
+    }
+
+    def "share the parsed sets between requests"() {
+        given:
+        def values = [scope: "openid email", response_type: "code id_token", prompt: "login consent"]
+
+        when:
+        def first = request(values)
+        def second = request(values)
+
+        then:
+        first.scope.is(second.scope)
+        first.responseType.is(second.responseType)
+        first.prompt.is(second.prompt)
+    }
+
+    def "not let the shared sets be changed"() {
+        when:
+        request([scope: "openid", response_type: "code"]).scope.add("profile")
+
+        then:
+        thrown(UnsupportedOperationException)
+    }
+
+    def "derive the flow and default response mode once per response type"() {
+        when:
+        def code = request([scope: "openid", response_type: "code"])
+
+        then:
+        code.flow == Flow.AUTHORIZATION_CODE
+        code.responseMode == ResponseMode.QUERY
+        request([scope: "openid", response_type: "code", response_mode: "form_post"]).responseMode ==
+                ResponseMode.FORM_POST
+        request([scope: "openid", response_type: "id_token"]).responseMode == ResponseMode.FRAGMENT
+    }
+
+    def "not keep values that don't parse"() {
+        given:
+        def size = InternedValues.SCOPES.size()
+
+        when:
+        request([scope: "profile", response_type: "code"])
+
+        then:
+        thrown(InputException)
+        InternedValues.SCOPES.size() == size
+    }
+
+    def "not keep values with unknown, repeated or extra separated words, but still parse them"() {
+        given:
+        def interned = new InternedValues<Set<String>>(["openid", "email"].stream())
+        def parser = { new HashSet(it.tokenize(" ")) }
+
+        when:
+        def first = interned.get(input, parser)
+        def second = interned.get(input, parser)
+
+        then:
+        interned.size() == 0
+        first == second
+        !first.is(second)
+
+        where:
+        input << ["openid junk", "openid openid", "openid  email", "openid\temail"]
+    }
+
+    def "keep values of known words in any order"() {
+        given:
+        def interned = new InternedValues<Set<String>>(["openid", "email"].stream())
+        def parser = { new HashSet(it.tokenize(" ")) }
+
+        when:
+        def first = interned.get("email openid", parser)
+
+        then:
+        interned.get("email openid", parser).is(first)
+        interned.size() == 1
+    }
+
+    def "not keep scopes a client made up"() {
+        given:
+        def size = InternedValues.SCOPES.size()
+
+        when:
+        (1..10).each { request([scope: "openid junk-$it".toString(), response_type: "code"]) }
+
+        then:
+        InternedValues.SCOPES.size() == size
+    }
+}
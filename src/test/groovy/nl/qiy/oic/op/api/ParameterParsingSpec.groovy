@@ -0,0 +1,94 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.api
+
+import nl.qiy.oic.op.api.param.Display
+import nl.qiy.oic.op.api.param.Prompt
+import nl.qiy.oic.op.api.param.ResponseMode
+import nl.qiy.oic.op.api.param.ResponseType
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class ParameterParsingSpec extends Specification {
+
+    def parts(String value) {
+        def result = []
+        for (def it = new SpaceDelimited(value); it.hasNext();) {
+            result << it.next()
+        }
+        return result
+    }
+
+    @Unroll
+    def "split [#value] like String.split does"() {
+        expect:
+        parts(value) == value.split(" ") as List
+
+        where:
+        value << ["openid", "openid profile", "openid  profile", "a b c d", "openid\temail"]
+    }
+
+    def "give a value without spaces back as is"() {
+        given:
+        def value = "openid"
+
+        expect:
+        parts(value)[0].is(value)
+    }
+
+    @Unroll
+    def "accept [#token] as scope token: #expected"() {
+        expect:
+        SpaceDelimited.isScopeToken(token) == expected
+
+        where:
+        token       | expected
+        "openid"    | true
+        "a!#[]~"    | true
+        ""          | false
+        "a\"b"      | false
+        "a\\b"      | false
+        "a\tb"      | false
+        "café" | false
+    }
+
+    def "find every enum value by its text"() {
+        expect:
+        Display.values().every { Display.get(it.toString()) == it }
+        Prompt.values().every { Prompt.get(it.toString()) == it }
+        ResponseType.values().every { ResponseType.get(it.toString()) == it }
+        ResponseMode.values().every { ResponseMode.get(it.toString()) == it }
+    }
+
+    def "refuse unknown enum texts"() {
+        when:
+        get(value)
+
+        then:
+        thrown(InputException)
+
+        where:
+        get                     | value
+        Prompt.&get             | null
+        Prompt.&get             | "LOGIN"
+        ResponseType.&get       | ""
+        ResponseMode.&get       | "post"
+        Display.&get            | "mobile"
+    }
+}
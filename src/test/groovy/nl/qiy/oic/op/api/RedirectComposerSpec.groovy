@@ -0,0 +1,82 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.api
+
+import javax.ws.rs.core.UriBuilder
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class RedirectComposerSpec extends Specification {
+    static final URIS = ["https://rp.example.com/cb", "https://rp.example.com/cb?keep=me", "http://localhost:8080",
+        "http://localhost:8080?keep=me", "https://rp.example.com/a%20b/cb?x=%2F"]
+    static final PARAMS = [
+        [state: "af0ifjsldkj", id_token: "eyJ.eyJ.c2ln"],
+        [state: URLEncoder.encode("Zoë € &=+ ;", "UTF-8"), access_token: "a-b_c==", token_type: "bearer",
+            expires_in: "3600"],
+        [state: "raw Zoë €𝄞 [x] \"q\" %zz %41 #"],
+        [state: "!\$'()*,;:@/?", code: "a=b&c+d"]
+    ]
+
+    static String joined(Map<String, String> params) {
+        def sb = new StringBuilder()
+        params.each { k, v -> sb.append(k).append("=").append(v).append("&") }
+        return sb.toString()
+    }
+
+    @Unroll
+    def "write the same query as UriBuilder for #uri and #params"() {
+        expect:
+        RedirectComposer.withQuery(URI.create(uri), params).toString() ==
+                UriBuilder.fromUri(uri).replaceQuery(joined(params)).build().toString()
+
+        where:
+        [uri, params] << [URIS, PARAMS].combinations()
+    }
+
+    @Unroll
+    def "write the same fragment as UriBuilder for #uri and #params"() {
+        expect:
+        RedirectComposer.withFragment(URI.create(uri), params).toString() ==
+                UriBuilder.fromUri(uri).fragment(joined(params)).build().toString()
+
+        where:
+        [uri, params] << [URIS, PARAMS].combinations()
+    }
+
+    @Unroll
+    def "write the same error as UriBuilder for #uri and #description"() {
+        given:
+        def state = "xyz Zoë+&="
+
+        expect:
+        RedirectComposer.withError(URI.create(uri), "invalid_request", description, state).toString() ==
+                UriBuilder.fromUri(uri).replaceQuery(null)
+                    .queryParam("error", "invalid_request")
+                    .queryParam("error_description", description)
+                    .queryParam("state", state)
+                    .build().toString()
+
+        where:
+        [uri, description] << [URIS, ["No client was found for clientId A",
+            "clientId [a b]: must match \"\\S+\"\n", "scope [openid, é] has invalid characters", "100% sure?/:@",
+            "!\$'()*,;~"]]
+                .combinations()
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.api
+
+import javax.validation.Validation
+import javax.ws.rs.core.MultivaluedHashMap
+
+import nl.qiy.oic.op.service.OAuthClientService
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class RequestTemplatesSpec extends Specification {
+    @Shared compiled = CompiledValidation.of(Validation.buildDefaultValidatorFactory())
+
+    def request(RequestTemplates templates, Map<String, String> values) {
+        def params = new MultivaluedHashMap<String, String>()
+        ([client_id: "A", redirect_uri: "https://rp.example.com/callback", scope: "openid email",
+            response_type: "code"] + values).each { k, v -> params.putSingle(k, v) }
+        return new AuthenticationRequest(params, compiled, templates)
+    }
+
+    def "take the static values from the template"() {
+        given:
+        def templates = new RequestTemplates(10)
+
+        when:
+        def first = request(templates, [state: "1", nonce: "a"])
+        def second = request(templates, [state: "2", nonce: "b"])
+
+        then:
+        templates.size() == 1
+        first.redirectUri.is(second.redirectUri)
+        first.client.is(second.client)
+        second.state == "2"
+        second.nonce == "b"
+    }
+
+    def "keep a template per combination of static values"() {
+        given:
+        def templates = new RequestTemplates(10)
+
+        when:
+        request(templates, [:])
+        request(templates, [scope: "openid"])
+        request(templates, [client_id: "B"])
+
+        then:
+        templates.size() == 3
+    }
+
+    def "not keep templates that don't validate"() {
+        given:
+        def templates = new RequestTemplates(10)
+
+        when:
+        request(templates, [scope: "email"])
+
+        then:
+        thrown(InputException)
+        templates.size() == 0
+    }
+
+    @Unroll
+    def "report an invalid #name to the redirect uri, templates: #withTemplates"() {
+        given:
+        AuthenticationRequest.resetStorage()
+
+        when:
+        request(withTemplates ? new RequestTemplates(10) : null, [(name): value, state: "xyz"])
+
+        then:
+        def e = thrown(InputException)
+        def errorUri = AuthenticationRequest.fromStorage().getErrorUri(e)
+        errorUri.toString().startsWith("https://rp.example.com/callback?error=")
+        errorUri.query.contains("state=")
+
+        where:
+        name            | value   | withTemplates
+        "response_type" | "bogus" | false
+        "response_type" | "bogus" | true
+        "scope"         | "email" | false
+        "scope"         | "email" | true
+    }
+
+    def "parse again when the client has changed"() {
+        given:
+        def templates = new RequestTemplates(10)
+        def first = request(templates, [:])
+
+        when:
+        OAuthClientService.clientChanged("A")
+        def second = request(templates, [:])
+
+        then:
+        !first.client.is(second.client)
+        second.client.is(request(templates, [:]).client)
+    }
+
+    def "drop all templates when full"() {
+        given:
+        def templates = new RequestTemplates(2)
+
+        when:
+        ["a", "b", "c"].each { request(templates, [scope: "openid " + it]) }
+
+        then:
+        templates.size() == 1
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.api
+
+import java.time.Duration
+
+import javax.validation.Validation
+import javax.ws.rs.core.MultivaluedHashMap
+
+import com.nimbusds.jose.JWEObject
+
+import nl.qiy.oic.op.service.SecretService
+import nl.qiy.oic.op.service.testimpl.DummySecretStore
+import spock.lang.Shared
+import spock.lang.Specification
+
+class SealedRequestsSpec extends Specification {
+    @Shared validator = Validation.buildDefaultValidatorFactory().getValidator()
+
+    def request() {
+        def params = new MultivaluedHashMap<String, String>()
+        params.putSingle("client_id", "A")
+        params.putSingle("redirect_uri", "https://rp.example.com/callback")
+        params.putSingle("scope", "openid email")
+        params.putSingle("response_type", "id_token")
+        params.putSingle("nonce", "n-0S6")
+        params.putSingle("state", "xyz")
+        return new AuthenticationRequest(params, validator)
+    }
+
+    def "unseal what was sealed"() {
+        given:
+        def original = request()
+
+        when:
+        def sealed = original.seal(Duration.ofMinutes(5))
+        def copy = AuthenticationRequest.unseal(sealed)
+
+        then:
+        JWEObject.parse(sealed).header.keyID == "seal-1"
+        copy.clientId == original.clientId
+        copy.scope == original.scope
+        copy.nonce == original.nonce
+        copy.state == original.state
+        copy.redirectUri == original.redirectUri
+    }
+
+    def "unseal only once"() {
+        given:
+        def sealed = request().seal(Duration.ofMinutes(5))
+        AuthenticationRequest.unseal(sealed)
+
+        when:
+        AuthenticationRequest.unseal(sealed)
+
+        then:
+        def e = thrown(InputException)
+        e.errorDescription.contains("used before")
+    }
+
+    def "refuse an expired request"() {
+        when:
+        AuthenticationRequest.unseal(request().seal(Duration.ofSeconds(-1)))
+
+        then:
+        def e = thrown(InputException)
+        e.errorDescription.contains("expired")
+    }
+
+    def "refuse a request that was tampered with"() {
+        given:
+        def parts = request().seal(Duration.ofMinutes(5)).split("\\.")
+        def cipherText = parts[3]
+        parts[3] = (cipherText[0] == "A" ? "B" : "A") + cipherText.substring(1)
+
+        when:
+        AuthenticationRequest.unseal(parts.join("."))
+
+        then:
+        thrown(InputException)
+    }
+
+    def "unseal with a rotated key during the overlap window"() {
+        given:
+        def original = SecretService.getKeyMaterial("sealedRequest").currentSet
+        def sealed = request().seal(Duration.ofMinutes(5))
+        SecretService.announce("sealedRequest", DummySecretStore.generateSecret("seal-2"), Duration.ofMinutes(5))
+
+        when:
+        def resealed = request().seal(Duration.ofMinutes(5))
+
+        then:
+        AuthenticationRequest.unseal(sealed).clientId == "A"
+        JWEObject.parse(resealed).header.keyID == "seal-2"
+
+        cleanup:
+        SecretService.announce("sealedRequest", original, Duration.ZERO)
+    }
+
+    def "refuse new ids while the replay cache is full of live ones"() {
+        given:
+        def cache = new SealedRequests.ReplayCache(2)
+        def added = [cache.add("a", 100, 10), cache.add("a", 100, 10), cache.add("b", 100, 10)]
+
+        when:
+        cache.add("c", 100, 10)
+
+        then:
+        added == [true, false, true]
+        def e = thrown(InputException)
+        e.error == ErrorCode.TEMPORARILY_UNAVAILABLE
+        cache.size() == 2
+        // the live ids are still known
+        !cache.add("a", 100, 50)
+
+        and: "expired entries are dropped first"
+        cache.add("d", 300, 200)
+        cache.size() == 1
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.domain
+
+import java.time.Duration
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.nimbusds.jose.jwk.JWKSet
+import com.nimbusds.jwt.SignedJWT
+
+import nl.qiy.oic.op.service.SecretService
+import nl.qiy.oic.op.service.testimpl.DummySecretStore
+import nl.qiy.oic.op.service.testimpl.DummyUser
+import spock.lang.Specification
+
+class AccessTokenSpec extends Specification {
+
+    def issue(Collection<String> scope = ["openid", "email"], Duration lifetime = Duration.ofMinutes(5)) {
+        return AccessToken.issue(new DummyUser("sub-1"), "client-1", scope, lifetime)
+    }
+
+    def "read back the token that was issued"() {
+        when:
+        def token = AccessToken.verify(issue()).get()
+
+        then:
+        token.subject == "sub-1"
+        token.clientId == "client-1"
+        token.scope == ["openid", "email"] as Set
+        token.id != null
+        token.expiry.isAfter(java.time.Instant.now())
+    }
+
+    def "mark the token as an access token"() {
+        expect:
+        SignedJWT.parse(issue()).header.type.type == "at+jwt"
+    }
+
+    def "return only the user's claims that were asked for as user info"() {
+        when:
+        def info = new ObjectMapper().readValue(AccessToken.verify(issue()).get().userInfo, Map)
+
+        then:
+        info == [sub: "sub-1", email: "jan@example.com", email_verified: true]
+    }
+
+    def "refuse tokens that were changed, expired or are no access token"() {
+        expect:
+        !AccessToken.verify(token).isPresent()
+
+        where:
+        token << [
+            issue()[0..-3] + "xx",
+            issue(["openid"], Duration.ofSeconds(-1)),
+            new IDToken(new DummyUser("sub-1")).buildStringRepresentation("client-1", "nonce"),
+            "a.b.c"
+        ]
+    }
+
+    def "tell self-contained tokens from opaque ones"() {
+        expect:
+        AccessToken.isJWT(issue())
+        !AccessToken.isJWT(Base64.urlEncoder.encodeToString(new byte[64]))
+    }
+
+    def "encrypt the token when there is an encryption key"() {
+        given:
+        def signing = SecretService.getKeyMaterial(AccessToken.KEY_TYPE).getKey(KeyUsePredicate.SIG)
+        def encryption = DummySecretStore.generateSecret("at-enc-1").keys[0]
+        SecretService.announce(AccessToken.KEY_TYPE, new JWKSet([signing, encryption]), Duration.ZERO)
+
+        when:
+        def serialized = issue()
+
+        then:
+        serialized.count(".") == 4
+        AccessToken.verify(serialized).get().subject == "sub-1"
+
+        cleanup:
+        SecretService.announce(AccessToken.KEY_TYPE, new JWKSet(signing), Duration.ZERO)
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.domain
+
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+
+import com.fasterxml.jackson.annotation.JsonProperty
+
+import nl.qiy.oic.op.service.testimpl.DummyUser
+import spock.lang.Specification
+
+class ClaimMappingSpec extends Specification {
+
+    static class LoyaltyClaims extends StandardClaims {
+        public final String loyalty
+        @JsonProperty("member_since")
+        public final Long memberSince
+        public final Integer ignored = 1
+        public static final String CONSTANT = "not a claim"
+
+        LoyaltyClaims(String sub, String loyalty, Long memberSince) {
+            super(sub, "Jan Jansen", null, null, null, null, null, null, null, null, null, null, null, null, null,
+            null, null, null, null, null)
+            this.loyalty = loyalty
+            this.memberSince = memberSince
+        }
+    }
+
+    def reflectiveNames(Class<?> type) {
+        def result = [] as Set
+        for (def c = type; c != Object; c = c.superclass) {
+            c.declaredFields.findAll { ClaimMapping.isClaim(it) }.each { result << ClaimMapping.claimName(it) }
+        }
+        return result
+    }
+
+    def "hand-written accessors cover the same claims as the fields"() {
+        expect:
+        ClaimMapping.forClass(type).accessors*.name as Set == reflectiveNames(type)
+
+        where:
+        type << [StandardClaims, AddressClaim]
+    }
+
+    def "map the standard claims, leaving out empty ones"() {
+        when:
+        def map = ClaimMapping.toMap(new DummyUser("sub-1").claims)
+
+        then:
+        map.sub == "sub-1"
+        map.given_name == "Jan"
+        map.email_verified == true
+        map.phone_number_verified == false
+        map.updated_at == 1_500_000_000L
+        map.address == [formatted: "Dam 1\n1012 JS Amsterdam", street_address: "Dam 1", locality: "Amsterdam",
+            region: "Noord-Holland", postal_code: "1012 JS", country: "NL"]
+        !map.containsKey("middle_name")
+    }
+
+    def "map the claims of a subclass including the inherited ones"() {
+        when:
+        def map = ClaimMapping.toMap(new LoyaltyClaims("sub-2", "gold", 2010L))
+
+        then:
+        map == [sub: "sub-2", name: "Jan Jansen", loyalty: "gold", member_since: 2010L]
+    }
+
+    def "only map the claims the scopes ask for"() {
+        when:
+        def map = ClaimMapping.toMap(new DummyUser("sub-1").claims, ClaimScope.bits(scope))
+
+        then:
+        map.keySet() == expected as Set
+
+        where:
+        scope                          | expected
+        ["openid"]                     | ["sub"]
+        ["openid", "email"]            | ["sub", "email", "email_verified"]
+        ["openid", "phone", "address"] | ["sub", "phone_number", "phone_number_verified", "address"]
+        ["openid", "profile"]          | ["sub", "name", "given_name", "family_name", "nickname", "preferred_username",
+            "profile", "picture", "website", "gender", "birthdate", "zoneinfo", "locale", "updated_at"]
+    }
+
+    def "always map the claims a subclass adds"() {
+        expect:
+        ClaimMapping.toMap(new LoyaltyClaims("sub-2", "gold", 2010L), 0) ==
+                [sub: "sub-2", loyalty: "gold", member_since: 2010L]
+    }
+
+    def "share one plan per class between threads"() {
+        given:
+        def pool = Executors.newFixedThreadPool(8)
+        def tasks = (1..50).collect { return { ClaimMapping.forClass(LoyaltyClaims) } as Callable }
+
+        when:
+        def plans = pool.invokeAll(tasks)*.get()
+
+        then:
+        plans.every { it.is(plans[0]) }
+
+        cleanup:
+        pool.shutdown()
+    }
+}
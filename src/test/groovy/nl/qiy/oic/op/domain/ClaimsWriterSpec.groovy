@@ -0,0 +1,85 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.domain
+
+import java.nio.charset.StandardCharsets
+
+import com.fasterxml.jackson.databind.ObjectMapper
+
+import nl.qiy.oic.op.service.testimpl.DummyUser
+import spock.lang.Specification
+
+class ClaimsWriterSpec extends Specification {
+    static final ObjectMapper MAPPER = new ObjectMapper()
+
+    def parse(byte[] json) {
+        return MAPPER.readValue(json, Map)
+    }
+
+    def "write the same claims as the mapping does"() {
+        given:
+        def claims = new DummyUser("sub-1").claims
+
+        expect:
+        parse(ClaimsWriter.get().claims(claims).toByteArray()) == ClaimMapping.toMap(claims)
+    }
+
+    def "write each claim once, the first value wins"() {
+        when:
+        def json = ClaimsWriter.get().claim("sub", "first").claim("sub", "second").claim("n", null).toByteArray()
+
+        then:
+        new String(json, StandardCharsets.UTF_8) == '{"sub":"first"}'
+    }
+
+    def "escape and encode strings"() {
+        when:
+        def json = ClaimsWriter.get().claim("s", value).toByteArray()
+
+        then:
+        parse(json).s == value
+        new String(json, StandardCharsets.UTF_8) == '{"s":' + expected + '}'
+
+        where:
+        value                 | expected
+        'plain'               | '"plain"'
+        'say "hi"\\'          | '"say \\"hi\\"\\\\"'
+        'line\nfeed\t\u0001'  | '"line\\nfeed\\t\\u0001"'
+        'Zoë €'               | '"Zoë €"'
+        'clef 𝄞'   | '"clef 𝄞"'
+    }
+
+    def "write numbers and booleans as is"() {
+        expect:
+        new String(ClaimsWriter.get().claim("l", 42L).claim("b", false).toByteArray(), StandardCharsets.UTF_8) ==
+                '{"l":42,"b":false}'
+    }
+
+    def "reuse the buffer without sharing the result"() {
+        when:
+        def one = ClaimsWriter.get().claim("x", "1").toByteArray()
+        def big = ClaimsWriter.get().claim("x", "y" * 100_000).toByteArray()
+        def two = ClaimsWriter.get().claim("x", "2").toByteArray()
+
+        then:
+        new String(one, StandardCharsets.UTF_8) == '{"x":"1"}'
+        big.length == 100_008
+        new String(two, StandardCharsets.UTF_8) == '{"x":"2"}'
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.domain
+
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.nimbusds.jose.crypto.RSASSAVerifier
+import com.nimbusds.jose.jwk.RSAKey
+import com.nimbusds.jwt.SignedJWT
+
+import nl.qiy.oic.op.service.SecretService
+import nl.qiy.oic.op.service.testimpl.DummyUser
+import spock.lang.Specification
+
+class IDTokenSpec extends Specification {
+
+    def verifier() {
+        RSAKey key = SecretService.getKeyMaterial("idToken").getKey(KeyUsePredicate.SIG)
+        return new RSASSAVerifier(key.toPublicJWK())
+    }
+
+    def "sign the ID token with the key from the secret store"() {
+        when:
+        def jwt = SignedJWT.parse(new IDToken(new DummyUser("sub-1")).buildStringRepresentation("client", "nonce"))
+
+        then:
+        jwt.verify(verifier())
+        jwt.JWTClaimsSet.subject == "sub-1"
+        jwt.JWTClaimsSet.audience == ["client"]
+        jwt.JWTClaimsSet.getClaim("nonce") == "nonce"
+    }
+
+    def "let the user's claims win from the registered claims, except for the nonce"() {
+        given:
+        def user = Stub(OAuthUser) {
+            getSubject() >> "sub-from-user"
+            getLoginTime() >> null
+            getClaims() >> new StandardClaims("sub-from-claims", null, null, null, null, null, null, null, null, null,
+                    null, null, null, null, null, null, null, null, null, null)
+        }
+
+        when:
+        def jwt = SignedJWT.parse(new IDToken(user).buildStringRepresentation("client", "nonce"))
+
+        then:
+        jwt.verify(verifier())
+        jwt.header.keyID == "dummy-1"
+        jwt.JWTClaimsSet.subject == "sub-from-claims"
+        jwt.JWTClaimsSet.getClaim("nonce") == "nonce"
+        jwt.JWTClaimsSet.issuer == "https://op.example.com"
+        jwt.JWTClaimsSet.expirationTime.after(jwt.JWTClaimsSet.issueTime)
+    }
+
+    def "return the user info as JSON"() {
+        when:
+        def info = new ObjectMapper().readValue(new IDToken(new DummyUser("sub-1")).userInfo, Map)
+
+        then:
+        info == new IDToken(new DummyUser("sub-1")).standardClaims
+        info.address.locality == "Amsterdam"
+    }
+
+    def "only put the claims that were asked for in the token and the user info"() {
+        given:
+        def idToken = new IDToken(new DummyUser("sub-1"), ["openid", "email"] as Set)
+
+        when:
+        def jwt = SignedJWT.parse(idToken.buildStringRepresentation("client", null))
+        def info = new ObjectMapper().readValue(idToken.userInfo, Map)
+
+        then:
+        jwt.JWTClaimsSet.claims.keySet() == ["sub", "email", "email_verified", "iss", "aud", "exp", "iat",
+            "auth_time"] as Set
+        info.keySet() == ["sub", "email", "email_verified"] as Set
+        idToken.standardClaims.keySet() == ["sub", "email", "email_verified"] as Set
+    }
+
+    def "hand out one signer per thread for the same key"() {
+        given:
+        def jwk = SecretService.getJWKSet("idToken").getKeys().get(0)
+        def pool = Executors.newFixedThreadPool(2)
+
+        when:
+        def here = JWSSignerRegistry.get("idToken", jwk)
+        def there = pool.submit({ JWSSignerRegistry.get("idToken", jwk) } as Callable).get()
+
+        then:
+        here.is(JWSSignerRegistry.get("idToken", jwk))
+        !here.is(there)
+
+        cleanup:
+        pool.shutdown()
+    }
+
+    def "sign valid tokens when signing concurrently"() {
+        given:
+        def pool = Executors.newFixedThreadPool(8)
+        def tasks = (1..200).collect { i ->
+            return { new IDToken(new DummyUser("sub-" + i)).buildStringRepresentation("client", null) } as Callable
+        }
+
+        when:
+        def tokens = pool.invokeAll(tasks).collect { SignedJWT.parse(it.get()) }
+
+        then:
+        tokens.every { it.verify(verifier()) }
+        tokens.collect { it.JWTClaimsSet.subject } as Set == (1..200).collect { "sub-" + it } as Set
+
+        cleanup:
+        pool.shutdown()
+    }
+}
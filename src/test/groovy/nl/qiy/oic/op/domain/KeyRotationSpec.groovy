@@ -0,0 +1,121 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.domain
+
+import java.time.Duration
+
+import com.nimbusds.jose.crypto.RSASSAVerifier
+import com.nimbusds.jose.jwk.JWKSet
+import com.nimbusds.jose.jwk.RSAKey
+import com.nimbusds.jwt.SignedJWT
+
+import nl.qiy.oic.op.api.DiscoveryResource
+import nl.qiy.oic.op.service.SecretService
+import nl.qiy.oic.op.service.testimpl.DummySecretStore
+import nl.qiy.oic.op.service.testimpl.DummyUser
+import spock.lang.Specification
+
+class KeyRotationSpec extends Specification {
+    JWKSet original
+
+    def setup() {
+        original = SecretService.getKeyMaterial("idToken").currentSet
+    }
+
+    def cleanup() {
+        SecretService.announce("idToken", original, Duration.ZERO)
+    }
+
+    def sign(String subject) {
+        return SignedJWT.parse(new IDToken(new DummyUser(subject)).buildStringRepresentation("client", null))
+    }
+
+    def "sign with the new key as soon as it is announced"() {
+        given:
+        def before = sign("sub-1")
+        def next = DummySecretStore.generate("dummy-2")
+
+        when:
+        def material = SecretService.announce("idToken", next, Duration.ofMinutes(5))
+        def after = sign("sub-1")
+
+        then:
+        material.version == old(SecretService.getKeyMaterial("idToken").version) + 1
+        before.header.keyID == "dummy-1"
+        after.header.keyID == "dummy-2"
+        after.verify(new RSASSAVerifier((RSAKey) next.keys.get(0)))
+    }
+
+    def "publish the replaced key during the overlap window"() {
+        given:
+        def before = sign("sub-1")
+
+        when:
+        SecretService.announce("idToken", DummySecretStore.generate("dummy-2"), Duration.ofMinutes(5))
+        def published = JWKSet.parse(DiscoveryResource.getKeySet().toJSONString())
+
+        then:
+        published.keys*.keyID as Set == ["dummy-1", "dummy-2"] as Set
+        published.keys.every { !it.private }
+        before.verify(new RSASSAVerifier((RSAKey) published.getKeyByKeyId("dummy-1")))
+    }
+
+    def "stop publishing the replaced key once the overlap has passed"() {
+        when:
+        SecretService.announce("idToken", DummySecretStore.generate("dummy-2"), Duration.ZERO)
+
+        then:
+        SecretService.getKeyMaterial("idToken").publishedSet.keys*.keyID == ["dummy-2"]
+        SecretService.getKeyMaterial("idToken").findKey("dummy-1").isPresent() == false
+    }
+
+    def "make the discovery metadata again once a replaced key is no longer published"() {
+        given:
+        def material = SecretService.announce("idToken", DummySecretStore.generate("dummy-2"), Duration.ofMillis(200))
+        def during = DiscoveryResource.getOpenIdConfiguration()
+
+        when:
+        def again = DiscoveryResource.getOpenIdConfiguration()
+
+        then:
+        material.publishedUntil.isPresent()
+        again.is(during)
+
+        when:
+        Thread.sleep(250)
+
+        then:
+        !material.publishedUntil.isPresent()
+        material.publishedSet.keys*.keyID == ["dummy-2"]
+        !DiscoveryResource.getOpenIdConfiguration().is(during)
+    }
+
+    def "notify listeners of a rotation"() {
+        given:
+        def seen = []
+        SecretService.addRotationListener({ o, n -> seen << [o.version, n.version] })
+        def version = SecretService.getKeyMaterial("idToken").version
+
+        when:
+        SecretService.announce("idToken", DummySecretStore.generate("dummy-2"), Duration.ZERO)
+
+        then:
+        seen == [[version, version + 1]]
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.domain
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class RedirectUriIndexSpec extends Specification {
+    def registered = ["https://rp.example.com/cb", "http://127.0.0.1/native", "http://[::1]/native?x=1"]
+
+    @Unroll
+    def "match #uri exactly"() {
+        expect:
+        RedirectUriIndex.of(registered).matches(URI.create(uri)) == expected
+
+        where:
+        uri                              | expected
+        "https://rp.example.com/cb"      | true
+        "https://rp.example.com/cb/"     | false
+        "https://RP.example.com/cb"      | false
+        "https://rp.example.com:443/cb"  | false
+        "https://rp.example.com/cb?a=b"  | false
+        "http://127.0.0.1:51234/native"  | false
+    }
+
+    @Unroll
+    def "match #uri by prefix"() {
+        expect:
+        RedirectUriIndex.of(registered).withPrefix("https://tenant.example.com/").matches(URI.create(uri)) == expected
+
+        where:
+        uri                                      | expected
+        "https://tenant.example.com/a/cb"        | true
+        "https://tenant.example.com.evil.org/cb" | false
+        "https://rp.example.com/cb"              | true
+    }
+
+    @Unroll
+    def "match #uri on any loopback port"() {
+        expect:
+        RedirectUriIndex.of(registered).withLoopback().matches(URI.create(uri)) == expected
+
+        where:
+        uri                                   | expected
+        "http://127.0.0.1:51234/native"       | true
+        "http://[::1]:8080/native?x=1"        | true
+        "http://[::1]:8080/native"            | false
+        "https://127.0.0.1:51234/native"      | false
+        "http://127.0.0.1:51234/other"        | false
+        "http://localhost:51234/native"       | false
+    }
+
+    def "not match null"() {
+        expect:
+        !RedirectUriIndex.of(registered).matches(null)
+    }
+
+    def "refuse an empty prefix"() {
+        when:
+        RedirectUriIndex.of(registered).withPrefix("")
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "survive serialization along with its client"() {
+        given:
+        def index = RedirectUriIndex.of(registered).withPrefix("https://tenant.example.com/").withLoopback()
+        def bytes = new ByteArrayOutputStream()
+        new ObjectOutputStream(bytes).writeObject(index)
+
+        when:
+        RedirectUriIndex copy = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject()
+
+        then:
+        copy.matches(URI.create("https://tenant.example.com/x"))
+        copy.matches(URI.create("http://127.0.0.1:1/native"))
+    }
+}
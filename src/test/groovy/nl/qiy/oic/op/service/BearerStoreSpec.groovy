@@ -0,0 +1,198 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.service
+
+import java.time.Duration
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.function.LongSupplier
+
+import nl.qiy.oic.op.domain.IDToken
+import nl.qiy.oic.op.service.testimpl.DummyUser
+import spock.lang.Specification
+
+class BearerStoreSpec extends Specification {
+    long now = 0
+    def alice = new IDToken(new DummyUser("alice"))
+    def bob = new IDToken(new DummyUser("bob"))
+    def store = new BearerStore(Duration.ofSeconds(600), 4, 1, { now } as LongSupplier)
+
+    def seconds(long s) {
+        now += Duration.ofSeconds(s).toNanos()
+    }
+
+    def "give a token for exactly the number of seconds told"() {
+        when:
+        def expiresIn = store.put("at-1", alice)
+        now += Duration.ofSeconds(600).toNanos() - 1
+        def before = store.get("at-1")
+        now += 1
+        def after = store.get("at-1")
+
+        then:
+        expiresIn == 600L
+        before.is(alice)
+        after == null
+        store.size() == 0
+        store.stats().hits == 1
+        store.stats().misses == 1
+    }
+
+    def "replace a token and restart its lifetime"() {
+        given:
+        store.put("at-1", alice)
+        seconds(300)
+
+        when:
+        store.put("at-1", bob)
+        seconds(400)
+
+        then:
+        store.get("at-1").is(bob)
+        store.size() == 1
+    }
+
+    def "evict the oldest token when full"() {
+        given:
+        (1..4).each {
+            store.put("at-$it".toString(), alice)
+            seconds(1)
+        }
+
+        when:
+        store.put("at-5", bob)
+
+        then:
+        store.get("at-1") == null
+        (2..4).every { store.get("at-$it".toString()).is(alice) }
+        store.get("at-5").is(bob)
+        store.stats().evictions == 1
+    }
+
+    def "make room with expired tokens before evicting"() {
+        given:
+        store.put("at-1", alice)
+        seconds(100)
+        (2..4).each { store.put("at-$it".toString(), alice) }
+        seconds(550)
+
+        when:
+        store.put("at-5", bob)
+
+        then:
+        store.size() == 4
+        store.stats().evictions == 0
+        store.get("at-2").is(alice)
+    }
+
+    def "remove expired tokens of all shards"() {
+        given:
+        def sharded = new BearerStore(Duration.ofSeconds(10), 100, 8, { now } as LongSupplier)
+        (1..20).each { sharded.put("at-$it".toString(), alice) }
+        seconds(5)
+        sharded.put("fresh", bob)
+        seconds(5)
+
+        when:
+        sharded.expire()
+
+        then:
+        sharded.size() == 1
+        sharded.get("fresh").is(bob)
+    }
+
+    def "remove a revoked token"() {
+        given:
+        store.put("at-1", alice)
+
+        expect:
+        store.remove("at-1")
+        !store.remove("at-1")
+        store.get("at-1") == null
+    }
+
+    def "refuse a lifetime that is not a whole number of seconds"() {
+        when:
+        new BearerStore(Duration.ofMillis(1500), 10)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "keep every thread's tokens apart under contention"() {
+        given:
+        def threads = 8
+        def perThread = 20_000
+        def shared = new BearerStore(Duration.ofSeconds(600), threads * perThread)
+        def tokens = (0..<threads).collect { new IDToken(new DummyUser("user-$it")) }
+        def pool = Executors.newFixedThreadPool(threads)
+        def start = new CountDownLatch(1)
+        def wrong = Collections.synchronizedList([])
+
+        when:
+        def futures = (0..<threads).collect { int t ->
+            pool.submit {
+                start.await()
+                for (int i = 0; i < perThread; i++) {
+                    def at = "at-$t-$i".toString()
+                    assert shared.put(at, tokens[t]) == 600L
+                    if (!shared.get(at).is(tokens[t])) {
+                        wrong << at
+                    }
+                    // read a token of another thread, which is either not there yet or that thread's
+                    def other = shared.get("at-${(t + 1) % threads}-$i".toString())
+                    if (other != null && !other.is(tokens[(t + 1) % threads])) {
+                        wrong << at
+                    }
+                }
+            }
+        }
+        start.countDown()
+        futures*.get(60, TimeUnit.SECONDS)
+        pool.shutdown()
+
+        then:
+        wrong.empty
+        shared.size() <= threads * perThread
+        shared.size() + shared.stats().evictions == threads * perThread
+    }
+
+    def "never hold more than the maximum under contention"() {
+        given:
+        def shared = new BearerStore(Duration.ofSeconds(600), 1_000)
+        def pool = Executors.newFixedThreadPool(8)
+
+        when:
+        def futures = (0..<8).collect { int t ->
+            pool.submit {
+                for (int i = 0; i < 10_000; i++) {
+                    shared.put("at-$t-$i".toString(), alice)
+                }
+            }
+        }
+        futures*.get(60, TimeUnit.SECONDS)
+        pool.shutdown()
+
+        then: "every shard is full, the bound is rounded up per shard"
+        shared.size() >= 1_000
+        shared.size() < 1_000 + Runtime.runtime.availableProcessors() * 4
+        shared.stats().evictions == 80_000 - shared.size()
+    }
+}
@@ -49,6 +49,51 @@ class ConfigurationServiceSpec extends Specification {
         1 * func.apply(_);
     }
 
+    def "route lookups to the provider that answered the key before"() {
+        given:
+        def loader = new FCFSServiceLoaderWrapper<Configuration>(Configuration.class)
+        def asked = []
+        def lookup = { key -> loader.get(key, { conf -> asked << key; conf.get(key) } as Function) }
+
+        when:
+        ["env", "env", "nothere", "nothere", "env"].each { lookup(it) }
+
+        then: "a remembered absence doesn't ask the providers again"
+        asked == ["env", "env", "nothere", "env"]
+        loader.hits == 3
+        loader.misses == 2
+    }
+
+    def "forget the routes when they are cleared"() {
+        given:
+        def loader = new FCFSServiceLoaderWrapper<Configuration>(Configuration.class)
+        loader.get("env", { it.get("env") } as Function)
+
+        when:
+        loader.clearRoutes()
+        def result = loader.get("env", { it.get("env") } as Function)
+
+        then:
+        result.get() == "test"
+        loader.hits == 0
+        loader.misses == 2
+    }
+
+    def "ask all providers again when the remembered one no longer knows the key"() {
+        given:
+        def loader = new FCFSServiceLoaderWrapper<Configuration>(Configuration.class)
+        def answer = "first"
+        loader.get("env", { answer } as Function)
+
+        when:
+        answer = null
+        def result = loader.get("env", { answer } as Function)
+
+        then:
+        !result.isPresent()
+        loader.misses == 2
+    }
+
     def "return 'test' when getting 'env'"() {
         expect:
         'test' == ConfigurationService.get("env");
@@ -93,6 +138,61 @@ class ConfigurationServiceSpec extends Specification {
         thrown(IllegalStateException)
     }
 
+    def "give the issuer and base uri as typed values"() {
+        given:
+        def config = ConfigurationService.current()
+
+        expect:
+        config.issuer == "https://op.example.com"
+        config.issuerUri == URI.create("https://op.example.com")
+        config.baseUri == URI.create("https://op.example.com/oic")
+        ConfigurationService.get(ConfigKey.BASE_URI) == config.baseUri
+    }
+
+    def "give the same snapshot until it is reloaded"() {
+        given:
+        def before = ConfigurationService.current()
+
+        when:
+        ConfigurationService.reload()
+
+        then:
+        ConfigurationService.current() == ConfigurationService.current()
+        !ConfigurationService.current().is(before)
+        ConfigurationService.current().issuer == before.issuer
+    }
+
+    def "give the default for a key that isn't configured"() {
+        expect:
+        ConfigurationService.get(ConfigKey.optional("nothere", Integer, 42)) == 42
+        ConfigurationService.get(ConfigKey.optional("nr", Integer, 42)) == 1
+    }
+
+    def "convert a value with the function of the key"() {
+        given:
+        def key = ConfigKey.required("nr", java.time.Duration).convertedBy({ java.time.Duration.ofSeconds(it) } as Function)
+
+        expect:
+        ConfigurationService.get(key) == java.time.Duration.ofSeconds(1)
+    }
+
+    def "throw an exception for a missing required key"() {
+        when:
+        ConfigurationService.get(ConfigKey.required("nothere", String))
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def "throw an exception for a value of the wrong type"() {
+        when:
+        ConfigurationService.get(ConfigKey.required("bool", Integer))
+
+        then:
+        def e = thrown(IllegalStateException)
+        e.message.contains("bool")
+    }
+
     //	def "not throw an exception when getting 'nothere' optional" () {
     //		when:
     //		ConfigurationService.getOptional("nothere")
@@ -0,0 +1,174 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.service
+
+import java.time.Duration
+import java.util.concurrent.Executor
+import java.util.function.Function
+import java.util.function.LongSupplier
+
+import spock.lang.Specification
+
+class ExpiringCacheSpec extends Specification {
+    long now = 0
+    def lookups = []
+    def values = [a: "A", b: "B"]
+    def pending = []
+    Executor later = { pending << it } as Executor
+    def cache = new ExpiringCache<String, String>("test", { k -> lookups << k; values[k] } as Function, 3,
+        Duration.ofSeconds(100), Duration.ofSeconds(10), { now } as LongSupplier, later)
+
+    def seconds(long s) {
+        now += Duration.ofSeconds(s).toNanos()
+    }
+
+    def "look a value up once until it expires"() {
+        when:
+        cache.get("a")
+        seconds(50)
+        cache.get("a")
+        seconds(51)
+        cache.get("a")
+
+        then:
+        lookups == ["a", "a"]
+        cache.stats().hits == 1
+        cache.stats().misses == 2
+    }
+
+    def "keep an absent value for a shorter time"() {
+        when:
+        cache.get("x")
+        seconds(9)
+        def first = cache.get("x")
+        seconds(2)
+        cache.get("x")
+
+        then:
+        first == null
+        lookups == ["x", "x"]
+    }
+
+    def "load a value again in the background when it's about to expire"() {
+        given:
+        cache.get("a")
+        values.a = "A2"
+
+        when: "80 seconds in, a fifth of the lifetime is left"
+        seconds(85)
+        def stale = cache.get("a")
+        cache.get("a")
+
+        then: "the old value is returned and only one refresh is started"
+        stale == "A"
+        pending.size() == 1
+
+        when:
+        pending[0].run()
+        seconds(50)
+
+        then: "the refreshed value lives on beyond the first lifetime"
+        cache.get("a") == "A2"
+        lookups == ["a", "a"]
+        cache.stats().refreshes == 1
+    }
+
+    def "not bring back an invalidated value with a refresh"() {
+        given:
+        cache.get("a")
+        seconds(85)
+        cache.get("a")
+
+        when:
+        cache.invalidate("a")
+        pending[0].run()
+        cache.get("a")
+
+        then:
+        lookups == ["a", "a", "a"]
+    }
+
+    def "stay within its size"() {
+        when:
+        ["a", "b", "c", "d", "e"].each { cache.get(it) }
+
+        then:
+        cache.stats().size == 3
+        cache.stats().evictions == 2
+    }
+
+    def "remove expired entries first when it is full"() {
+        given:
+        ["x", "y"].each { cache.get(it) }
+        cache.get("a")
+        seconds(11)
+
+        when:
+        ["b", "c"].each { cache.get(it) }
+
+        then: "they are not counted as evictions"
+        cache.stats().size == 3
+        cache.stats().evictions == 0
+        cache.get("a") == "A"
+        lookups.count("a") == 1
+    }
+
+    def "evict the entry that expires first"() {
+        given: "x is absent, so it expires before a even though it was written later"
+        cache.get("a")
+        seconds(1)
+        ["x", "b"].each { cache.get(it) }
+
+        when: "then c, which is absent as well"
+        cache.get("c")
+        cache.get("d")
+
+        then:
+        cache.stats().evictions == 2
+        lookups.clear()
+        ["a", "b", "d"].each { cache.get(it) }
+        lookups == []
+    }
+
+    def "not evict for an entry that was replaced by a refresh"() {
+        given:
+        ["a", "b"].each { cache.get(it) }
+        seconds(85)
+        cache.get("a")
+        pending[0].run()
+
+        when: "the first write of a is at the front, but it has been replaced"
+        ["c", "d"].each { cache.get(it) }
+
+        then:
+        cache.stats().evictions == 1
+        cache.stats().size == 3
+        lookups.clear()
+        cache.get("a") == "A"
+        lookups == []
+    }
+
+    def "report the hit rate"() {
+        when:
+        4.times { cache.get("a") }
+
+        then:
+        cache.stats().hitRate == 0.75d
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.service
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.time.Duration
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.function.LongSupplier
+
+import nl.qiy.oic.op.domain.IDToken
+import nl.qiy.oic.op.service.testimpl.DummyUser
+import spock.lang.Specification
+
+class OffHeapBearerStoreSpec extends Specification {
+    long now = 1_000_000
+    def alice = new IDToken(new DummyUser("alice"))
+    def bob = new IDToken(new DummyUser("bob"))
+    def dir = Files.createTempDirectory("bearers")
+    def file = dir.resolve("bearers.table")
+
+    def cleanup() {
+        Files.deleteIfExists(file)
+        Files.delete(dir)
+    }
+
+    def store(int maxSize = 100, int maxUserInfoSize = 1024, path = null) {
+        new OffHeapBearerStore(Duration.ofSeconds(600), maxSize, maxUserInfoSize, path, 1, { now } as LongSupplier)
+    }
+
+    def seconds(long s) {
+        now += s * 1000
+    }
+
+    def "give the user info of a token for exactly the number of seconds told"() {
+        given:
+        def store = store()
+
+        when:
+        def expiresIn = store.put("at-1", alice)
+        now += 600_000 - 1
+        def before = store.getUserInfo("at-1")
+        now += 1
+        def after = store.getUserInfo("at-1")
+
+        then:
+        expiresIn == 600L
+        before == alice.userInfo
+        after == null
+        store.size() == 0
+    }
+
+    def "replace a token and restart its lifetime"() {
+        given:
+        def store = store()
+        store.put("at-1", alice)
+        seconds(300)
+
+        when:
+        store.put("at-1", bob)
+        seconds(400)
+
+        then:
+        store.getUserInfo("at-1") == bob.userInfo
+        store.size() == 1
+    }
+
+    def "refuse a user info that doesn't fit"() {
+        given:
+        def store = store(100, 16)
+
+        when:
+        store.put("at-1", alice)
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message.contains("exceeds the maximum of 16")
+        store.getUserInfo("at-1") == null
+        store.size() == 0
+    }
+
+    def "remove a revoked token"() {
+        given:
+        def store = store()
+        store.put("at-1", alice)
+
+        expect:
+        store.remove("at-1")
+        !store.remove("at-1")
+        store.getUserInfo("at-1") == null
+    }
+
+    def "evict the token that expires first when its slots are taken"() {
+        given: "16 tokens get 32 slots"
+        def store = store(16)
+
+        when:
+        (1..100).each {
+            store.put("at-$it".toString(), alice)
+            seconds(1)
+        }
+
+        then:
+        store.size() <= 32
+        store.size() + store.stats().evictions == 100
+        store.getUserInfo("at-100") == alice.userInfo
+        store.getUserInfo("at-1") == null
+    }
+
+    def "reuse expired slots without evicting"() {
+        given:
+        def store = store(16)
+
+        when:
+        (1..100).each {
+            store.put("at-$it".toString(), alice)
+            seconds(601)
+        }
+
+        then:
+        store.stats().evictions == 0
+        store.getUserInfo("at-100") == null
+    }
+
+    def "reload the live tokens from the file"() {
+        given:
+        def first = store(100, 1024, file)
+        first.put("at-1", alice)
+        seconds(300)
+        first.put("at-2", bob)
+        first.flush()
+        seconds(301)
+
+        when:
+        def second = store(100, 1024, file)
+
+        then:
+        second.size() == 1
+        second.getUserInfo("at-1") == null
+        second.getUserInfo("at-2") == bob.userInfo
+    }
+
+    def "start empty when the file holds a table of other sizes"() {
+        given:
+        store(100, 1024, file).put("at-1", alice)
+
+        when:
+        def other = store(100, 2048, file)
+
+        then:
+        other.size() == 0
+        other.getUserInfo("at-1") == null
+    }
+
+    def "drop a slot that was not completely written"() {
+        given:
+        def first = store(100, 1024, file)
+        first.put("at-1", alice)
+        first.flush()
+        def bytes = Files.readAllBytes(file)
+        def email = "jan@example.com".getBytes(StandardCharsets.UTF_8)
+        def at = (0..bytes.length - email.length).find { i -> (0..<email.length).every { bytes[i + it] == email[it] } }
+        // 'j' becomes 'J'
+        bytes[at] = (byte) (bytes[at] ^ 0x20)
+        Files.write(file, bytes)
+
+        when:
+        def second = store(100, 1024, file)
+
+        then:
+        second.size() == 0
+        second.getUserInfo("at-1") == null
+    }
+
+    def "keep every thread's tokens apart under contention"() {
+        given:
+        def threads = 8
+        def perThread = 5_000
+        def shared = new OffHeapBearerStore(Duration.ofSeconds(600), threads * perThread, 1024)
+        def tokens = (0..<threads).collect { new IDToken(new DummyUser("user-$it")) }
+        def userInfos = tokens*.userInfo
+        def pool = Executors.newFixedThreadPool(threads)
+        def start = new CountDownLatch(1)
+        def wrong = Collections.synchronizedList([])
+
+        when:
+        def futures = (0..<threads).collect { int t ->
+            pool.submit {
+                start.await()
+                for (int i = 0; i < perThread; i++) {
+                    def at = "at-$t-$i".toString()
+                    assert shared.put(at, tokens[t]) == 600L
+                    if (shared.getUserInfo(at) != userInfos[t]) {
+                        wrong << at
+                    }
+                    // read a token of another thread, which is either not there yet or that thread's
+                    def other = shared.getUserInfo("at-${(t + 1) % threads}-$i".toString())
+                    if (other != null && other != userInfos[(t + 1) % threads]) {
+                        wrong << at
+                    }
+                }
+            }
+        }
+        start.countDown()
+        futures*.get(60, TimeUnit.SECONDS)
+        pool.shutdown()
+
+        then:
+        wrong.empty
+        shared.size() + shared.stats().evictions == threads * perThread
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.service
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class OriginIndexSpec extends Specification {
+    def index = OriginIndex.of(["https://rp.example.com", "HTTP://Other.Example.com:80/", "https://*.apps.example.com:8443",
+        "http://[::1]:8080", "not an origin"], true)
+
+    @Unroll
+    def "allow #origin"() {
+        expect:
+        index.matches(origin)
+
+        where:
+        origin << ["https://rp.example.com", "https://RP.example.com:443", "https://rp.example.com/",
+            "http://other.example.com", "https://a.apps.example.com:8443", "https://a.b.apps.example.com:8443",
+            "http://[::1]:8080"]
+    }
+
+    @Unroll
+    def "don't allow #origin"() {
+        expect:
+        !index.matches(origin)
+
+        where:
+        origin << [null, "null", "", "http://rp.example.com", "https://rp.example.com:8443", "https://rp.example.com/x",
+            "https://apps.example.com:8443", "https://a.apps.example.com", "https://*.apps.example.com:8443",
+            "https://user@rp.example.com", "https://rp.example.com:99999", "http://[::1]"]
+    }
+
+    def "normalize origins"() {
+        expect:
+        OriginIndex.normalize("HTTPS://Rp.Example.com:443/") == "https://rp.example.com"
+        OriginIndex.normalize("http://rp.example.com:8080") == "http://rp.example.com:8080"
+        OriginIndex.normalize("rp.example.com") == null
+    }
+
+    def "let the client service answer from the index"() {
+        when:
+        OAuthClientService.INSTANCE.refreshOriginIndex()
+
+        then:
+        OAuthClientService.existsOrigin("https://rp.example.com")
+        OAuthClientService.existsOrigin("https://x.apps.example.com:8443")
+        !OAuthClientService.existsOrigin("https://evil.example.com")
+        OAuthClientService.INSTANCE.refreshOriginIndex().complete
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.service
+
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.function.Function
+
+import nl.qiy.oic.op.service.spi.ClientStore
+import nl.qiy.oic.op.service.spi.Configuration
+import nl.qiy.oic.op.service.spi.ServiceProviderInterface
+import spock.lang.Specification
+
+class ProviderSnapshotSpec extends Specification {
+
+    static interface Unregistered extends ServiceProviderInterface {
+    }
+
+    def "share the providers between threads"() {
+        given:
+        def snapshot = new ProviderSnapshot<ClientStore>(ClientStore)
+        def pool = Executors.newFixedThreadPool(4)
+
+        when:
+        def seen = pool.invokeAll((1..20).collect { return { snapshot.providers()[0] } as Callable })*.get()
+
+        then:
+        seen.every { it.is(snapshot.providers()[0]) }
+
+        cleanup:
+        pool.shutdown()
+    }
+
+    def "replace the providers on reload"() {
+        given:
+        def snapshot = new ProviderSnapshot<ClientStore>(ClientStore)
+        def before = snapshot.providers()
+
+        when:
+        snapshot.reload()
+
+        then:
+        !snapshot.providers().is(before)
+        snapshot.providers().length == before.length
+        !snapshot.providers()[0].is(before[0])
+        // the old array is left alone for whoever is still using it
+        before[0] != null
+    }
+
+    def "close the replaced providers"() {
+        given:
+        def snapshot = new ProviderSnapshot<Configuration>(Configuration)
+        def before = snapshot.providers()[0]
+
+        when:
+        snapshot.reload()
+
+        then:
+        before.closed
+        !snapshot.providers()[0].closed
+    }
+
+    def "fail when there is no provider"() {
+        when:
+        new ProviderSnapshot<Unregistered>(Unregistered)
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def "ask the new provider after a reload"() {
+        given:
+        def loader = new FCFSServiceLoaderWrapper<Configuration>(Configuration)
+        def asked = []
+        def func = { asked << it; "result" } as Function
+        loader.get(func)
+
+        when:
+        LoadingService.reloadProviders()
+        loader.get(func)
+
+        then:
+        asked.size() == 2
+        !asked[0].is(asked[1])
+    }
+}
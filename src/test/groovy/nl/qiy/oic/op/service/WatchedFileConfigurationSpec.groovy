@@ -0,0 +1,114 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.qiy.oic.op.service
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.function.BiConsumer
+
+import spock.lang.Specification
+
+class WatchedFileConfigurationSpec extends Specification {
+    Path dir
+    Path file
+    WatchedFileConfiguration config
+
+    def setup() {
+        dir = Files.createTempDirectory("config")
+        file = dir.resolve("config.json")
+        file.text = '{"iss": "https://op.example.com", "base-uri": "https://op.example.com/oic", "nr": 1}'
+        config = new WatchedFileConfiguration(file)
+    }
+
+    def cleanup() {
+        config.close()
+        file.toFile().delete()
+        dir.toFile().delete()
+    }
+
+    def "read the values from the file"() {
+        expect:
+        config.get("iss") == "https://op.example.com"
+        config.get("nr") == 1
+        config.get("nothere") == null
+        config.healthy
+    }
+
+    def "read the file again when it changes"() {
+        when:
+        file.text = '{"iss": "https://op.example.com", "base-uri": "https://op.example.com/oic", "nr": 2}'
+        def deadline = System.currentTimeMillis() + 10000
+        while (config.get("nr") != 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20)
+        }
+
+        then:
+        config.get("nr") == 2
+    }
+
+    def "keep the old values when the file isn't valid"() {
+        when:
+        file.text = contents
+        config.reload()
+
+        then:
+        config.get("nr") == 1
+
+        where:
+        contents << ['{"nr": ', '[1, 2]',
+            '{"iss": "not a uri because of spaces", "base-uri": "https://op.example.com"}',
+            '{"iss": "https://op.example.com", "nr": 2}',
+            '{"base-uri": "https://op.example.com", "nr": 2}']
+    }
+
+    def "tell the configuration service about a change"() {
+        given:
+        def calls = [].asSynchronized()
+        ConfigurationService.addChangeListener({ old, current -> calls << current } as BiConsumer)
+
+        when: "the watcher or this thread, whichever comes first, reads the file"
+        file.text = '{"iss": "https://op.example.com", "base-uri": "https://op.example.com/oic", "nr": 3}'
+        config.reload()
+
+        then:
+        calls.size() == 1
+        calls[0].is(ConfigurationService.current())
+    }
+
+    def "stop watching when closed"() {
+        given:
+        def watching = { Thread.allStackTraces.keySet().any { it.name == "config-watch-config.json" && it.alive } }
+        assert watching()
+
+        when:
+        config.close()
+        def deadline = System.currentTimeMillis() + 10000
+        while (watching() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20)
+        }
+
+        then:
+        !watching()
+    }
+
+    def "not tell the configuration service when nothing changed"() {
+        expect:
+        !config.reload()
+    }
+}
@@ -20,6 +20,8 @@
 package nl.qiy.oic.op.service.testimpl;
 
 import java.net.URI;
+import java.util.Arrays;
+import java.util.Collection;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,15 +45,7 @@ public class DummyClientStore implements ClientStore {
     @Override
     public OAuthClient getById(String clientId) {
         LOGGER.debug("returning dummy client");
-        return new OAuthClient() {
-            private static final long serialVersionUID = 1L;
-
-            @Override
-            public boolean ownsURI(URI redirectUri) {
-                return true;
-            }
-
-        };
+        return new DummyClient();
     }
 
     @Override
@@ -63,4 +57,21 @@ public class DummyClientStore implements ClientStore {
     public Boolean existstOrigin(String origin) {
         return null;
     }
+
+    @Override
+    public Collection<String> listOrigins() {
+        return Arrays.asList("https://rp.example.com", "https://*.apps.example.com:8443");
+    }
+
+    /**
+     * A client that owns every URI. Not an anonymous class, so it can be serialized along with the request
+     */
+    private static final class DummyClient implements OAuthClient {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public boolean ownsURI(URI redirectUri) {
+            return true;
+        }
+    }
 }
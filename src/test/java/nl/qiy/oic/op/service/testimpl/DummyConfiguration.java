@@ -19,6 +19,7 @@
 
 package nl.qiy.oic.op.service.testimpl;
 
+import java.io.Closeable;
 import java.io.StringReader;
 import java.util.HashMap;
 import java.util.Map;
@@ -34,8 +35,9 @@ import nl.qiy.oic.op.service.spi.Configuration;
  * @author Friso Vrolijken
  * @since 2 mei 2016
  */
-public class DummyConfiguration implements Configuration {
+public class DummyConfiguration implements Configuration, Closeable {
     private Map<String, Object> delegate = new HashMap<>();
+    private volatile boolean closed = false;
 
     /**
      * Default constructor for DummyConfiguration
@@ -43,7 +45,8 @@ public class DummyConfiguration implements Configuration {
     public DummyConfiguration() {
         super();
         StringReader reader = new StringReader(
-                "{\"env\": \"test\", \"obj\": {\"key\": \"value\"}, \"nr\":1, \"bool\": true}");
+                "{\"env\": \"test\", \"obj\": {\"key\": \"value\"}, \"nr\":1, \"bool\": true, "
+                        + "\"iss\": \"https://op.example.com\", \"base-uri\": \"https://op.example.com/oic\"}");
         try {
             delegate = new ObjectMapper().readerFor(Map.class).readValue(reader);
         } catch (Exception e) {
@@ -62,4 +65,16 @@ public class DummyConfiguration implements Configuration {
         return true;
     }
 
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * @return whether {@link #close()} was called
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
 }
@@ -0,0 +1,88 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.service.testimpl;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+
+import nl.qiy.oic.op.service.spi.SecretStore;
+
+/**
+ * SecretStore implementation to get through the test cases. Generates one RSA signing key per JVM and hands it out for
+ * every type, except for sealedRequest which gets an AES key. As the service loader needs to know the class' name, a
+ * Spock Mock or Stub won't suffice
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+public class DummySecretStore implements SecretStore {
+    private static final JWKSet KEYS = generate("dummy-1");
+    private static final JWKSet SEAL_KEYS = generateSecret("seal-1");
+
+    /**
+     * Generates a fresh RS256 signing key
+     * 
+     * @param kid
+     *            the key id to use
+     * @return a JWKSet with the single key in it
+     */
+    public static JWKSet generate(String kid) {
+        try {
+            // @formatter:off
+            return new JWKSet(new RSAKeyGenerator(2048)
+                    .keyID(kid)
+                    .keyUse(KeyUse.SIGNATURE)
+                    .algorithm(JWSAlgorithm.RS256)
+                    .generate());
+            // @formatter:on
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Generates a fresh 256 bit AES key
+     * 
+     * @param kid
+     *            the key id to use
+     * @return a JWKSet with the single key in it
+     */
+    public static JWKSet generateSecret(String kid) {
+        try {
+            return new JWKSet(new OctetSequenceKeyGenerator(256).keyID(kid).keyUse(KeyUse.ENCRYPTION).generate());
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public JWKSet getJWKSet(String type) {
+        return "sealedRequest".equals(type) ? SEAL_KEYS : KEYS;
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return true;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.service.testimpl;
+
+import java.time.Instant;
+
+import nl.qiy.oic.op.domain.AddressClaim;
+import nl.qiy.oic.op.domain.OAuthUser;
+import nl.qiy.oic.op.domain.StandardClaims;
+
+/**
+ * A user with a complete set of claims, to be used in test cases and benchmarks
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+public class DummyUser implements OAuthUser {
+    private static final long serialVersionUID = 1L;
+
+    private final String subject;
+    private final Instant loginTime = Instant.now();
+    private final StandardClaims claims;
+
+    /**
+     * Constructor for DummyUser
+     * 
+     * @param subject
+     *            the persistent identifier for this user
+     */
+    public DummyUser(String subject) {
+        super();
+        this.subject = subject;
+        AddressClaim address = new AddressClaim("Dam 1\n1012 JS Amsterdam", "Dam 1", "Amsterdam", "Noord-Holland",
+                "1012 JS", "NL");
+        this.claims = new StandardClaims(subject, "Jan Jansen", "Jan", "Jansen", null, "Jantje", "jjansen",
+                "https://example.com/jjansen", "https://example.com/jjansen.png", "https://jansen.example.com",
+                "jan@example.com", Boolean.TRUE, "male", "1970-01-01", "Europe/Amsterdam", "nl-NL", "+31 20 1234567",
+                Boolean.FALSE, address, Long.valueOf(1_500_000_000L));
+    }
+
+    @Override
+    public Instant getLoginTime() {
+        return loginTime;
+    }
+
+    @Override
+    public String getSubject() {
+        return subject;
+    }
+
+    @Override
+    public StandardClaims getClaims() {
+        return claims;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * This work is protected under copyright law in the Kingdom of
+ * The Netherlands. The rules of the Berne Convention for the
+ * Protection of Literary and Artistic Works apply.
+ * Digital Me B.V. is the copyright owner.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package nl.qiy.oic.op.service.testimpl;
+
+import java.time.Duration;
+
+import javax.servlet.http.HttpSession;
+
+import nl.qiy.oic.op.domain.IDToken;
+import nl.qiy.oic.op.domain.OAuthUser;
+import nl.qiy.oic.op.service.BearerStore;
+import nl.qiy.oic.op.service.spi.UserSessionManager;
+
+/**
+ * UserSessionManager implementation to get through the test cases, keeps everything in memory. As the service loader
+ * needs to know the class' name, a Spock Mock or Stub won't suffice
+ *
+ * @author Friso Vrolijken
+ * @since 16 okt. 2026
+ */
+public class DummyUserSessionManager implements UserSessionManager {
+    private static final String USER_KEY = DummyUserSessionManager.class.getName();
+    private final BearerStore bearers = new BearerStore(Duration.ofSeconds(600), 10_000);
+
+    @Override
+    public OAuthUser getLoggedIn(HttpSession session) {
+        return session == null ? null : (OAuthUser) session.getAttribute(USER_KEY);
+    }
+
+    @Override
+    public void logout(HttpSession session) {
+        if (session != null) {
+            session.removeAttribute(USER_KEY);
+        }
+    }
+
+    @Override
+    public OAuthUser login(OAuthUser template, HttpSession session) {
+        if (session != null) {
+            session.setAttribute(USER_KEY, template);
+        }
+        return template;
+    }
+
+    @Override
+    public IDToken getBearer(String bearerKey) {
+        return bearers.get(bearerKey);
+    }
+
+    @Override
+    public Long addBearer(String at, IDToken idt) {
+        return bearers.put(at, idt);
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return true;
+    }
+}